@@ -0,0 +1,190 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bookings submitted with {@code Prefer: respond-async}: the request thread only runs the checks
+ * that need no database, queues the booking and answers 202 with a ticket. A small pool of workers
+ * books them; the outcome is sent to the vendor on {@code /user/queue/bookings} and kept under the
+ * ticket for polling until the TTL runs out. A full queue is answered with 429.
+ */
+@Component
+public class AsyncBookingQueue {
+
+    public static final String DESTINATION = "/queue/bookings";
+
+    private enum State { QUEUED, BOOKED, FAILED }
+
+    private static final class Ticket {
+        final String id;
+        final Long vendorId;
+        final Long eventId;
+        volatile State state = State.QUEUED;
+        volatile Map<String, Object> outcome = Map.of();
+        volatile long finishedAt;
+
+        Ticket(String id, Long vendorId, Long eventId) {
+            this.id = id;
+            this.vendorId = vendorId;
+            this.eventId = eventId;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("ticket", id);
+            result.put("eventId", eventId);
+            result.put("status", state.name());
+            result.putAll(outcome);
+            return result;
+        }
+    }
+
+    private final ReservationService reservationService;
+    private final StallOccupancyIndex occupancyIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WaitingRoom waitingRoom;
+    private final int maxStalls;
+    private final long ttlMillis;
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong booked = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public AsyncBookingQueue(ReservationService reservationService, StallOccupancyIndex occupancyIndex,
+                             SimpMessagingTemplate messagingTemplate, WaitingRoom waitingRoom,
+                             AppProperties appProperties) {
+        this.reservationService = reservationService;
+        this.occupancyIndex = occupancyIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.waitingRoom = waitingRoom;
+        AppProperties.Booking cfg = appProperties.getBooking();
+        this.maxStalls = cfg.getMaxStallsPerBooking();
+        this.ttlMillis = cfg.getAsyncTicketTtlSeconds() * 1000L;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(cfg.getAsyncThreads(), cfg.getAsyncThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cfg.getAsyncQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "booking-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /** Queues the booking and returns its ticket; what fails here fails the request itself. */
+    public Map<String, Object> submit(CreateBookingRequest request, Long vendorId) {
+        Long eventId = request.getEventId();
+        if (request.getStallIds().size() > maxStalls)
+            throw new IllegalArgumentException("Maximum " + maxStalls + " stalls per booking.");
+        if (new HashSet<>(request.getStallIds()).size() != request.getStallIds().size())
+            throw new IllegalArgumentException("Some stalls not found.");
+        for (Long stallId : request.getStallIds()) {
+            if (!occupancyIndex.hasStall(eventId, stallId))
+                throw new IllegalArgumentException("All stalls must belong to this event.");
+            if (occupancyIndex.isBooked(eventId, stallId))
+                throw new IllegalStateException("Some of the selected stalls are already booked.");
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), vendorId, eventId);
+        Map<String, Object> queued = ticket.describe();
+        tickets.put(ticket.id, ticket);
+        try {
+            workers.execute(() -> book(ticket, request));
+        } catch (RejectedExecutionException e) {
+            tickets.remove(ticket.id);
+            rejected.incrementAndGet();
+            throw new ThrottledException("Too many bookings are waiting right now, please try again shortly", 2);
+        }
+        accepted.incrementAndGet();
+        return queued;
+    }
+
+    /** The ticket's current state, or null if it is unknown, expired or someone else's. */
+    public Map<String, Object> status(String ticketId, Long vendorId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.vendorId.equals(vendorId))
+            return null;
+        return ticket.describe();
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.async-sweep-ms:60000}")
+    public void evictFinished() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        tickets.values().removeIf(t -> t.state != State.QUEUED && t.finishedAt < cutoff);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("asyncQueueDepth", workers.getQueue().size());
+        result.put("asyncTickets", tickets.size());
+        result.put("asyncAccepted", accepted.get());
+        result.put("asyncRejectedFull", rejected.get());
+        result.put("asyncBooked", booked.get());
+        result.put("asyncFailed", failed.get());
+        return result;
+    }
+
+    private void book(Ticket ticket, CreateBookingRequest request) {
+        long start = System.nanoTime();
+        try {
+            Reservation r;
+            try {
+                r = reservationService.createPendingReservation(request, ticket.vendorId);
+            } finally {
+                waitingRoom.recordBooking(System.nanoTime() - start);
+            }
+            Map<String, Object> outcome = new LinkedHashMap<>();
+            outcome.put("reservationId", r.getId());
+            outcome.put("bookingId", r.getBookingId());
+            outcome.put("advanceAmount", r.getAdvanceAmount());
+            outcome.put("totalAmount", r.getTotalAmount());
+            booked.incrementAndGet();
+            finish(ticket, State.BOOKED, outcome);
+        } catch (IllegalArgumentException | IllegalStateException | ThrottledException e) {
+            failed.incrementAndGet();
+            finish(ticket, State.FAILED, Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            finish(ticket, State.FAILED, Map.of("message", "Booking could not be completed. Please try again."));
+        }
+    }
+
+    private void finish(Ticket ticket, State state, Map<String, Object> outcome) {
+        ticket.outcome = outcome;
+        ticket.finishedAt = System.currentTimeMillis();
+        ticket.state = state;
+        try {
+            messagingTemplate.convertAndSendToUser(String.valueOf(ticket.vendorId), DESTINATION, ticket.describe());
+        } catch (RuntimeException e) {
+            // Broker unavailable; the outcome is still there to be polled
+        }
+    }
+}
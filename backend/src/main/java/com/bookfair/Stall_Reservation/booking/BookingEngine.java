@@ -0,0 +1,259 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.dto.reservation.PendingBooking;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.enums.ReservationStatus;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.repository.ReservationRepository;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books through one single-writer actor per event ({@code app.booking.engine=actor}). An event's
+ * bookings queue in its actor's mailbox and are applied one group at a time, so they never contend
+ * with each other in the database: conflicts are settled against the occupancy index and the
+ * event's set of vendors before anything is written, and only accepted bookings reach the
+ * transactional path. Actors of different events run in parallel on a shared pool.
+ * <p>
+ * A group is everything that arrived within {@code app.booking.group-commit-window-ms} of its
+ * oldest booking, up to {@code group-commit-max-size}. It is validated against one read of the
+ * event and written in one transaction, first come first served within the group, so a rush on
+ * an event costs one commit per group rather than one per booking.
+ * <p>
+ * The actor is the only writer for its event on this node. Other nodes, and other paths that free
+ * stalls, can still change things underneath it, so a vendor it believes already booked is checked
+ * against the database, and the transactional path keeps its own checks and claims.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.engine", havingValue = "actor")
+public class BookingEngine {
+
+    private static final List<ReservationStatus> ACTIVE = List.of(ReservationStatus.PENDING, ReservationStatus.SUCCESS);
+
+    /** One booking request; {@link #claim} decides whether the actor or the waiting caller owns it. */
+    public static final class Command {
+        final CreateBookingRequest request;
+        final Long vendorId;
+        final CompletableFuture<Reservation> result = new CompletableFuture<>();
+        final long arrivedAt = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Command(CreateBookingRequest request, Long vendorId) {
+            this.request = request;
+            this.vendorId = vendorId;
+        }
+
+        public CompletableFuture<Reservation> result() {
+            return result;
+        }
+
+        /** True for whoever gets there first: the actor about to run it, or a caller abandoning it. */
+        public boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private final class EventActor implements Runnable {
+        final Long eventId;
+        final BlockingQueue<Command> mailbox = new ArrayBlockingQueue<>(mailboxCapacity);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Only touched while the actor runs; scheduling hands it from one pool thread to the next
+        Set<Long> vendors;
+
+        EventActor(Long eventId) {
+            this.eventId = eventId;
+        }
+
+        void tell(Command command) {
+            if (!mailbox.offer(command)) {
+                mailboxFull.incrementAndGet();
+                command.result.completeExceptionally(
+                        new ThrottledException("Too many bookings for this event are waiting. Please try again.", 1));
+                return;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true))
+                workers.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Command> group = collect();
+                if (!group.isEmpty())
+                    handle(group);
+            } finally {
+                scheduled.set(false);
+                if (!mailbox.isEmpty())
+                    schedule();
+            }
+        }
+
+        // Whatever is queued, plus whatever arrives before the window that opened with the oldest one closes
+        private List<Command> collect() {
+            List<Command> group = new ArrayList<>();
+            long deadline = 0;
+            while (group.size() < maxGroupSize) {
+                Command command = mailbox.poll();
+                try {
+                    if (command == null && !group.isEmpty()) {
+                        long remaining = deadline - System.nanoTime();
+                        command = remaining > 0 ? mailbox.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (command == null)
+                    break;
+                if (group.isEmpty())
+                    deadline = command.arrivedAt + windowNanos;
+                if (command.claim())
+                    group.add(command);
+            }
+            return group;
+        }
+
+        // Whatever goes wrong, every command taken from the mailbox gets an outcome; its caller is waiting
+        private void handle(List<Command> group) {
+            try {
+                apply(group);
+            } catch (RuntimeException e) {
+                group.forEach(command -> command.result.completeExceptionally(e));
+            }
+        }
+
+        private void apply(List<Command> group) {
+            List<Command> writing = new ArrayList<>();
+            List<PendingBooking> bookings = new ArrayList<>();
+            for (Command command : group) {
+                String conflict = conflict(command);
+                if (conflict != null) {
+                    rejected.incrementAndGet();
+                    command.result.completeExceptionally(new IllegalStateException(conflict));
+                    continue;
+                }
+                writing.add(command);
+                bookings.add(new PendingBooking(command.request, command.vendorId));
+            }
+            if (bookings.isEmpty())
+                return;
+            try {
+                transactional.createPendingReservations(bookings);
+            } catch (RuntimeException e) {
+                writing.forEach(command -> command.result.completeExceptionally(e));
+                return;
+            }
+            groups.incrementAndGet();
+            grouped.addAndGet(bookings.size());
+            for (int i = 0; i < writing.size(); i++) {
+                Command command = writing.get(i);
+                PendingBooking booking = bookings.get(i);
+                if (booking.getReservation() != null) {
+                    vendors.add(command.vendorId);
+                    accepted.incrementAndGet();
+                    command.result.complete(booking.getReservation());
+                } else {
+                    command.result.completeExceptionally(booking.getError());
+                }
+            }
+        }
+
+        private String conflict(Command command) {
+            for (Long stallId : command.request.getStallIds()) {
+                if (occupancyIndex.isBooked(eventId, stallId))
+                    return "Some of the selected stalls are already booked.";
+            }
+            if (vendors == null)
+                vendors = new HashSet<>(reservationRepository.findActiveVendorIdsByEventId(eventId));
+            // The set only learns about bookings made here; a cancellation elsewhere leaves a stale entry
+            if (vendors.contains(command.vendorId)) {
+                if (reservationRepository.existsByVendorIdAndEventIdAndStatusIn(command.vendorId, eventId, ACTIVE))
+                    return "You already have an active reservation for this event.";
+                vendors.remove(command.vendorId);
+            }
+            return null;
+        }
+    }
+
+    private final ReservationService transactional;
+    private final ReservationRepository reservationRepository;
+    private final StallOccupancyIndex occupancyIndex;
+    private final int mailboxCapacity;
+    private final int maxGroupSize;
+    private final long windowNanos;
+    private final ExecutorService workers;
+    private final ConcurrentHashMap<Long, EventActor> actors = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong mailboxFull = new AtomicLong();
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong grouped = new AtomicLong();
+
+    public BookingEngine(@Qualifier("reservationServiceImpl") ReservationService transactional,
+                         ReservationRepository reservationRepository, StallOccupancyIndex occupancyIndex,
+                         AppProperties appProperties) {
+        this.transactional = transactional;
+        this.reservationRepository = reservationRepository;
+        this.occupancyIndex = occupancyIndex;
+        AppProperties.Booking cfg = appProperties.getBooking();
+        this.mailboxCapacity = cfg.getMailboxCapacity();
+        this.maxGroupSize = Math.max(1, cfg.getGroupCommitMaxSize());
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getGroupCommitWindowMs());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(cfg.getEngineThreads(), r -> {
+            Thread t = new Thread(r, "booking-engine-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public Command submit(CreateBookingRequest request, Long vendorId) {
+        Command command = new Command(request, vendorId);
+        actors.computeIfAbsent(request.getEventId(), EventActor::new).tell(command);
+        return command;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("engineActors", actors.size());
+        result.put("engineQueued", actors.values().stream().mapToInt(a -> a.mailbox.size()).sum());
+        result.put("engineAccepted", accepted.get());
+        result.put("engineRejectedInMemory", rejected.get());
+        result.put("engineMailboxFull", mailboxFull.get());
+        long commits = groups.get();
+        result.put("engineGroupCommits", commits);
+        result.put("engineAvgGroupSize", commits == 0 ? 0 : (double) grouped.get() / commits);
+        return result;
+    }
+}
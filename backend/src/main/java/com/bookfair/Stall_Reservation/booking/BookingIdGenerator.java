@@ -0,0 +1,152 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style booking IDs: 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a
+ * 12-bit per-millisecond sequence, written as 13 Crockford base32 characters plus one Luhn mod 32
+ * check character, e.g. {@code BF-0AB3C4D5E6F7GH}.
+ * <p>
+ * IDs from one node are strictly increasing and fixed-width, so they sort by creation time and are
+ * appended to the end of the bookingId index. Two nodes never collide as long as they are given
+ * different {@code app.booking.node-id} values, which is why a clustered (relay broker) deployment
+ * refuses to start without one. A single node defaults to 0.
+ * <p>
+ * At startup the generator continues after the newest stored booking ID rather than from the clock,
+ * so a clock that stepped back while the node was down cannot reissue an ID.
+ */
+@Component
+public class BookingIdGenerator {
+
+    public static final String PREFIX = "BF-";
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int BODY_LENGTH = 13;
+
+    private final long nodeId;
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong state = new AtomicLong();
+
+    public BookingIdGenerator(@Value("${app.booking.node-id:-1}") int configuredNodeId, AppProperties appProperties,
+                              ReservationRepository reservationRepository) {
+        if (configuredNodeId >= 1 << NODE_BITS)
+            throw new IllegalStateException("app.booking.node-id must be between 0 and " + ((1 << NODE_BITS) - 1));
+        if (configuredNodeId < 0 && appProperties.getRealtime().isRelay())
+            throw new IllegalStateException("app.booking.node-id must be set on every node when app.realtime.broker-mode=relay");
+        this.nodeId = Math.max(configuredNodeId, 0);
+        resumeAfter(reservationRepository.findMaxBookingIdOfLength(PREFIX.length() + BODY_LENGTH + 1));
+    }
+
+    // Treats the newest stored id as the last one issued, so the next id is later than it whatever the clock says
+    private void resumeAfter(String lastBookingId) {
+        if (lastBookingId == null || !isWellFormed(lastBookingId))
+            return;
+        long value = 0;
+        for (int i = 0; i < BODY_LENGTH; i++) {
+            value = (value << 5) | decodeChar(lastBookingId.charAt(PREFIX.length() + i));
+        }
+        long millis = value >>> (NODE_BITS + SEQUENCE_BITS);
+        state.set((millis << SEQUENCE_BITS) | MAX_SEQUENCE);
+    }
+
+    public String nextId() {
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long lastMillis = prev >>> SEQUENCE_BITS;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond, or the clock stepped back: keep counting from the last id.
+                // A full sequence borrows the next millisecond rather than waiting for it.
+                next = prev + 1;
+            }
+        } while (!state.compareAndSet(prev, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long value = (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & MAX_SEQUENCE);
+        return PREFIX + encode(value);
+    }
+
+    /**
+     * Checks the format and check character without touching the database. IDs issued before this
+     * generator existed ({@code BF-} plus 8 hex characters) carry no checksum and are accepted as-is.
+     */
+    public static boolean isWellFormed(String bookingId) {
+        if (bookingId == null || !bookingId.regionMatches(true, 0, PREFIX, 0, PREFIX.length()))
+            return false;
+        String body = bookingId.substring(PREFIX.length());
+        if (body.length() == 8)
+            return body.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+        if (body.length() != BODY_LENGTH + 1)
+            return false;
+        int[] digits = new int[body.length()];
+        for (int i = 0; i < body.length(); i++) {
+            digits[i] = decodeChar(body.charAt(i));
+            if (digits[i] < 0)
+                return false;
+        }
+        return luhnSum(digits, digits.length) % 32 == 0;
+    }
+
+    /** Upper-cases and maps the look-alike characters Crockford allows (I, L -> 1; O -> 0). */
+    public static String normalize(String bookingId) {
+        if (bookingId == null)
+            return null;
+        String upper = bookingId.trim().toUpperCase();
+        if (!upper.startsWith(PREFIX))
+            return upper;
+        return PREFIX + upper.substring(PREFIX.length()).replace('I', '1').replace('L', '1').replace('O', '0');
+    }
+
+    private static String encode(long value) {
+        char[] out = new char[BODY_LENGTH + 1];
+        int[] digits = new int[BODY_LENGTH + 1];
+        for (int i = BODY_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (int) (value & 31);
+            value >>>= 5;
+        }
+        // Choose the check digit that makes the Luhn mod 32 sum divisible by 32
+        digits[BODY_LENGTH] = (32 - luhnSum(digits, BODY_LENGTH + 1) % 32) % 32;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ALPHABET.charAt(digits[i]);
+        }
+        return new String(out);
+    }
+
+    // Luhn mod N over digits[0..length), doubling every second digit from the right
+    private static int luhnSum(int[] digits, int length) {
+        int sum = 0;
+        boolean dbl = false;
+        for (int i = length - 1; i >= 0; i--) {
+            int d = digits[i];
+            if (dbl) {
+                d *= 2;
+                d = d / 32 + d % 32;
+            }
+            sum += d;
+            dbl = !dbl;
+        }
+        return sum;
+    }
+
+    private static int decodeChar(char c) {
+        char u = Character.toUpperCase(c);
+        if (u == 'I' || u == 'L')
+            return 1;
+        if (u == 'O')
+            return 0;
+        return ALPHABET.indexOf(u);
+    }
+}
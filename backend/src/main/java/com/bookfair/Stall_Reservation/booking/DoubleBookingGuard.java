@@ -0,0 +1,155 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.entity.Stall;
+import com.bookfair.Stall_Reservation.entity.StallClaim;
+import com.bookfair.Stall_Reservation.entity.VendorEventClaim;
+import com.bookfair.Stall_Reservation.repository.ReservationStallRepository;
+import com.bookfair.Stall_Reservation.repository.StallClaimRepository;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.repository.UserRepository;
+import com.bookfair.Stall_Reservation.repository.VendorEventClaimRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps two reservations from holding the same stall, and a vendor from holding two reservations
+ * for one event, when bookings run concurrently. The in-memory occupancy check in front of it turns
+ * most conflicts away; this is what decides the races that get past it. Chosen with
+ * {@code app.booking.conflict-strategy}:
+ * <ul>
+ * <li>{@code claim}: the booking inserts a row per stall into {@code stall_claims} (keyed by stall)
+ * and one into {@code vendor_event_claims} (unique per vendor and event); the loser of a race fails
+ * on the key.</li>
+ * <li>{@code lock}: the booking starts by locking the vendor's row and then the requested stalls
+ * ({@code SELECT ... FOR UPDATE}, in id order) and checks the stalls against the database while
+ * holding them.</li>
+ * </ul>
+ * Claims are removed whenever a reservation stops being active, under either strategy, and
+ * {@link com.bookfair.Stall_Reservation.config.StallClaimInitializer} rebuilds them at startup.
+ */
+@Component
+public class DoubleBookingGuard {
+
+    private final UserRepository userRepository;
+    private final StallRepository stallRepository;
+    private final ReservationStallRepository reservationStallRepository;
+    private final StallClaimRepository stallClaimRepository;
+    private final VendorEventClaimRepository vendorEventClaimRepository;
+    private final boolean lockStrategy;
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public DoubleBookingGuard(UserRepository userRepository, StallRepository stallRepository,
+                              ReservationStallRepository reservationStallRepository,
+                              StallClaimRepository stallClaimRepository,
+                              VendorEventClaimRepository vendorEventClaimRepository,
+                              AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.stallRepository = stallRepository;
+        this.reservationStallRepository = reservationStallRepository;
+        this.stallClaimRepository = stallClaimRepository;
+        this.vendorEventClaimRepository = vendorEventClaimRepository;
+        this.lockStrategy = appProperties.getBooking().isLockStrategy();
+    }
+
+    /**
+     * Lock strategy only, and it must be the first thing the booking transaction does: under
+     * REPEATABLE READ the snapshot is taken by the first plain read, which then has to come after
+     * the locks so that it sees whatever the previous holder committed.
+     */
+    public void lock(Long vendorId, Collection<Long> stallIds) {
+        if (!lockStrategy)
+            return;
+        userRepository.lockAllById(List.of(vendorId));
+        List<Stall> stalls = stallRepository.lockAllById(stallIds);
+        List<Long> booked = reservationStallRepository.findBookedStallIdsIn(stallIds);
+        if (!booked.isEmpty()) {
+            conflicts.incrementAndGet();
+            String code = stalls.stream().filter(s -> s.getId().equals(booked.get(0)))
+                    .map(Stall::getStallCode).findFirst().orElse(String.valueOf(booked.get(0)));
+            throw new IllegalStateException("Stall " + code + " is already booked.");
+        }
+    }
+
+    /**
+     * {@link #lock} for a group of bookings written in one transaction: locks all their vendors, then
+     * all their stalls, and returns the stalls the database already has booked instead of failing.
+     */
+    public Set<Long> lockAll(Collection<Long> vendorIds, Collection<Long> stallIds) {
+        if (!lockStrategy)
+            return Set.of();
+        userRepository.lockAllById(vendorIds);
+        stallRepository.lockAllById(stallIds);
+        return new HashSet<>(reservationStallRepository.findBookedStallIdsIn(stallIds));
+    }
+
+    /** Claim strategy only; call once the reservation has its id and stalls. */
+    public void claim(Reservation reservation) {
+        claimAll(List.of(reservation));
+    }
+
+    /** {@link #claim} for a group of reservations written in one transaction; one conflict fails them all. */
+    public void claimAll(List<Reservation> reservations) {
+        if (lockStrategy || reservations.isEmpty())
+            return;
+        List<VendorEventClaim> vendorClaims = reservations.stream()
+                .sorted(Comparator.comparing(r -> r.getVendor().getId()))
+                .map(r -> new VendorEventClaim(r.getId(), r.getVendor().getId(), r.getEvent().getId()))
+                .toList();
+        try {
+            vendorEventClaimRepository.saveAllAndFlush(vendorClaims);
+        } catch (DataIntegrityViolationException e) {
+            conflicts.incrementAndGet();
+            throw new IllegalStateException("You already have an active reservation for this event.");
+        }
+        // Same order in every booking, so two overlapping ones cannot each wait on the other's row
+        List<StallClaim> claims = reservations.stream()
+                .flatMap(r -> r.getStalls().stream()
+                        .map(rs -> new StallClaim(rs.getStall().getId(), r.getEvent().getId(), r.getId())))
+                .sorted(Comparator.comparing(StallClaim::getStallId))
+                .toList();
+        try {
+            stallClaimRepository.saveAllAndFlush(claims);
+        } catch (DataIntegrityViolationException e) {
+            conflicts.incrementAndGet();
+            throw new IllegalStateException("One of the selected stalls was just booked by another vendor.");
+        }
+    }
+
+    /** Frees what the reservations held; safe to call for ones that held nothing. */
+    public void release(Collection<Long> reservationIds) {
+        if (reservationIds.isEmpty())
+            return;
+        stallClaimRepository.deleteByReservationIdIn(reservationIds);
+        vendorEventClaimRepository.deleteByReservationIdIn(reservationIds);
+    }
+
+    public void releaseEvent(Long eventId) {
+        stallClaimRepository.deleteByEventId(eventId);
+        vendorEventClaimRepository.deleteByEventId(eventId);
+    }
+
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("conflictStrategy", lockStrategy ? "lock" : "claim");
+        result.put("bookingConflicts", conflicts.get());
+        result.put("bookingRetries", retries.get());
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the rendered public event list. Dropped after any committed booking
+ * change and on event create/remove, and expires by itself once the next upcoming event starts.
+ */
+@Component
+public class EventCatalogCache {
+
+    public record Catalog(List<Map<String, Object>> events, LocalDateTime validUntil) {
+    }
+
+    private volatile Catalog cached;
+    // Bumped on invalidation so a load that overlaps a commit is served but not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public List<Map<String, Object>> get(Supplier<Catalog> loader) {
+        Catalog current = cached;
+        if (current != null && (current.validUntil() == null || LocalDateTime.now().isBefore(current.validUntil())))
+            return current.events();
+
+        long gen = generation.get();
+        Catalog loaded = loader.get();
+        synchronized (this) {
+            if (generation.get() == gen)
+                cached = loaded;
+        }
+        return loaded.events();
+    }
+
+    /** Drops the cached list once the surrounding transaction commits. */
+    public void invalidate() {
+        AfterCommit.run(this::drop);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStallBooking(StallBookingEvent event) {
+        drop();
+    }
+
+    private synchronized void drop() {
+        generation.incrementAndGet();
+        cached = null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON (plain and gzipped) of each event's public floor-plan payloads, tagged with a
+ * per-event version that is bumped after every committed booking, hold, block or layout change.
+ * Conditional requests are answered from the version alone, without building or reading anything.
+ * An event is only versioned once a payload has been loaded for it or it has changed, so ids that
+ * are not events never get an ETag or an entry here.
+ */
+@Component
+public class EventSnapshotCache {
+
+    public enum Kind { DETAIL, AVAILABILITY }
+
+    public record Snapshot(long version, String etag, byte[] json, byte[] gzip) {
+    }
+
+    // Versions restart with the process, so the boot id keeps old ETags from matching new payloads
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final ConcurrentHashMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Snapshot[]> snapshots = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public EventSnapshotCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /** The event's version, or 0 if nothing has been cached for it yet. */
+    public long currentVersion(Long eventId) {
+        AtomicLong version = versions.get(eventId);
+        return version != null ? version.get() : 0;
+    }
+
+    /** The current ETag, or null if nothing has been served for the event yet (it may not exist). */
+    public String etag(Long eventId, Kind kind) {
+        long version = currentVersion(eventId);
+        return version == 0 ? null : etag(eventId, kind, version);
+    }
+
+    /** Returns the payload for the current version, serializing it on first use; null if the loader finds nothing. */
+    public Snapshot get(Long eventId, Kind kind, Supplier<Object> loader) {
+        long version = Math.max(1, currentVersion(eventId));
+        Snapshot[] cachedSlots = snapshots.get(eventId);
+        Snapshot cached = cachedSlots != null ? cachedSlots[kind.ordinal()] : null;
+        if (cached != null && cached.version() == version)
+            return cached;
+
+        // Read after taking the version, so the payload is at least as new as its tag
+        Object payload = loader.get();
+        if (payload == null)
+            return null;
+        // The event exists; a change committed during the load has already moved the version past this one
+        versions.putIfAbsent(eventId, new AtomicLong(1));
+        Snapshot[] slots = snapshots.computeIfAbsent(eventId, id -> new Snapshot[Kind.values().length]);
+        byte[] json = serialize(payload);
+        Snapshot built = new Snapshot(version, etag(eventId, kind, version), json, gzip(json));
+        synchronized (slots) {
+            Snapshot current = slots[kind.ordinal()];
+            if (current == null || current.version() < version)
+                slots[kind.ordinal()] = built;
+        }
+        return built;
+    }
+
+    /** Bumps the event's version once the surrounding transaction commits. */
+    public void invalidate(Long eventId) {
+        AfterCommit.run(() -> bump(eventId));
+    }
+
+    /** Once the surrounding transaction commits, bumps the version and drops the cached payloads. */
+    public void evict(Long eventId) {
+        AfterCommit.run(() -> {
+            bump(eventId);
+            snapshots.remove(eventId);
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStallBooking(StallBookingEvent event) {
+        bump(event.getEventId());
+    }
+
+    private void bump(Long eventId) {
+        versions.computeIfAbsent(eventId, id -> new AtomicLong(1)).incrementAndGet();
+    }
+
+    private String etag(Long eventId, Kind kind, long version) {
+        // Weak: the plain and gzipped bodies are the same representation
+        return "W/\"" + bootId + "-" + eventId + "-" + version + "-" + kind.name().toLowerCase() + "\"";
+    }
+
+    private byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event snapshot", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
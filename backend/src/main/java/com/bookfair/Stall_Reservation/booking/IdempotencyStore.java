@@ -0,0 +1,124 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response to each {@code Idempotency-Key} for a while so that client retries
+ * are answered from memory instead of being executed again. Keys are scoped per user. A duplicate
+ * that arrives while the first request is still running waits for its result.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final AppProperties appProperties;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(AppProperties appProperties) {
+        this.appProperties = appProperties;
+    }
+
+    /**
+     * Runs {@code action} once per (user, key). {@code fingerprint} identifies the request payload;
+     * reusing a key for a different payload is rejected. Only successes and definitive rejections
+     * are remembered: if the action throws, or answers with a status a retry could change (429 or
+     * 5xx), the key is released so that a retry runs it again.
+     */
+    public ResponseEntity<?> execute(Long userId, String key, Object fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null)
+            return action.get();
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid " + HEADER + " header"));
+
+        String scopedKey = userId + ":" + key;
+        while (true) {
+            Entry mine = new Entry(fingerprint);
+            Entry existing = entries.compute(scopedKey, (k, cur) -> cur == null || cur.isExpired() ? mine : cur);
+
+            if (existing == mine)
+                return run(scopedKey, mine, action);
+
+            if (!Objects.equals(existing.fingerprint, fingerprint))
+                return ResponseEntity.unprocessableEntity()
+                        .body(Map.of("message", HEADER + " was already used for a different request"));
+
+            try {
+                ResponseEntity<?> original = existing.result.get(
+                        appProperties.getBooking().getIdempotencyWaitSeconds(), TimeUnit.SECONDS);
+                return ResponseEntity.status(original.getStatusCode())
+                        .headers(original.getHeaders())
+                        .header(REPLAYED_HEADER, "true")
+                        .body(original.getBody());
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("message", "A request with this " + HEADER + " is still being processed"));
+            } catch (ExecutionException e) {
+                // The first attempt failed without a response and released the key; try to take it over
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request", e);
+            }
+        }
+    }
+
+    private ResponseEntity<?> run(String scopedKey, Entry entry, Supplier<ResponseEntity<?>> action) {
+        try {
+            ResponseEntity<?> response = action.get();
+            if (!remembered(response)) {
+                entries.remove(scopedKey, entry);
+                entry.result.completeExceptionally(new IllegalStateException("Not remembered"));
+                return response;
+            }
+            entry.expiresAt = System.currentTimeMillis()
+                    + appProperties.getBooking().getIdempotencyTtlSeconds() * 1000L;
+            entry.result.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            entries.remove(scopedKey, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static boolean remembered(ResponseEntity<?> response) {
+        return !response.getStatusCode().is5xxServerError()
+                && response.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        entries.values().removeIf(Entry::isExpired);
+    }
+
+    private static final class Entry {
+        final Object fingerprint;
+        final CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+        // Set once the result is known; in-flight entries never expire
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(Object fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired() {
+            return expiresAt < System.currentTimeMillis();
+        }
+    }
+}
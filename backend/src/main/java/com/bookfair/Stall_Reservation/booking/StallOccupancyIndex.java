@@ -0,0 +1,201 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.repository.EventRepository;
+import com.bookfair.Stall_Reservation.repository.ReservationStallRepository;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory occupancy of every event's floor plan, one bit per stall.
+ * Loaded from the database on first access and then kept current by reservation
+ * state transitions, which are applied only after their transaction commits.
+ * Ids that are not events are answered as empty floor plans and never cached.
+ */
+@Component
+public class StallOccupancyIndex {
+
+    // Shared answer for ids that are not events; never stored, never changed
+    private static final EventOccupancy MISSING = new EventOccupancy(List.of());
+
+    private final EventRepository eventRepository;
+    private final StallRepository stallRepository;
+    private final ReservationStallRepository reservationStallRepository;
+
+    private final ConcurrentHashMap<Long, EventOccupancy> events = new ConcurrentHashMap<>();
+    // Bumped on every committed change so a load racing with a commit is not cached
+    private final ConcurrentHashMap<Long, AtomicLong> stamps = new ConcurrentHashMap<>();
+
+    public StallOccupancyIndex(EventRepository eventRepository, StallRepository stallRepository,
+                               ReservationStallRepository reservationStallRepository) {
+        this.eventRepository = eventRepository;
+        this.stallRepository = stallRepository;
+        this.reservationStallRepository = reservationStallRepository;
+    }
+
+    public boolean isBooked(Long eventId, Long stallId) {
+        return occupancy(eventId).isBooked(stallId);
+    }
+
+    public List<Long> getBookedStallIds(Long eventId) {
+        return occupancy(eventId).bookedIds();
+    }
+
+    public int countBooked(Long eventId) {
+        return occupancy(eventId).bookedCount();
+    }
+
+    public int countStalls(Long eventId) {
+        return occupancy(eventId).stallCount();
+    }
+
+    public boolean exists(Long eventId) {
+        return occupancy(eventId) != MISSING;
+    }
+
+    public boolean hasStall(Long eventId, Long stallId) {
+        return stallId != null && occupancy(eventId).ordinal(stallId) >= 0;
+    }
+
+    /** Marks the stalls as booked once the surrounding transaction commits. */
+    public void markBooked(Long eventId, Collection<Long> stallIds) {
+        List<Long> ids = List.copyOf(stallIds);
+        AfterCommit.run(() -> apply(eventId, ids, true));
+    }
+
+    /** Frees the stalls once the surrounding transaction commits. */
+    public void release(Long eventId, Collection<Long> stallIds) {
+        List<Long> ids = List.copyOf(stallIds);
+        AfterCommit.run(() -> apply(eventId, ids, false));
+    }
+
+    /** Drops the event so that it is reloaded on next access (layout changes, event removal). */
+    public void evict(Long eventId) {
+        AfterCommit.run(() -> {
+            stamp(eventId).incrementAndGet();
+            events.remove(eventId);
+        });
+    }
+
+    private void apply(Long eventId, List<Long> stallIds, boolean booked) {
+        stamp(eventId).incrementAndGet();
+        EventOccupancy occupancy = events.get(eventId);
+        if (occupancy == null)
+            return;
+        for (Long stallId : stallIds) {
+            if (!occupancy.set(stallId, booked)) {
+                // Stall unknown to this snapshot: layout changed, reload lazily
+                events.remove(eventId);
+                return;
+            }
+        }
+    }
+
+    private EventOccupancy occupancy(Long eventId) {
+        EventOccupancy cached = events.get(eventId);
+        if (cached != null)
+            return cached;
+
+        // Read without creating an entry; a change committed meanwhile creates it with a higher value
+        AtomicLong current = stamps.get(eventId);
+        long stamp = current != null ? current.get() : 0;
+        List<Long> stallIds = stallRepository.findIdsByEventId(eventId);
+        if (stallIds.isEmpty() && !eventRepository.existsById(eventId))
+            return MISSING;
+        EventOccupancy loaded = new EventOccupancy(stallIds);
+        for (Long stallId : reservationStallRepository.findBookedStallIdsByEventId(eventId)) {
+            loaded.set(stallId, true);
+        }
+        current = stamps.get(eventId);
+        if ((current != null ? current.get() : 0) != stamp)
+            return loaded;
+        EventOccupancy existing = events.putIfAbsent(eventId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private AtomicLong stamp(Long eventId) {
+        return stamps.computeIfAbsent(eventId, id -> new AtomicLong());
+    }
+
+    /**
+     * Lock-free bitset over one event's stalls. A stall's ordinal is its position in the
+     * sorted id array; stalls created together get contiguous ids, so the common case is a
+     * plain subtraction and only fragmented layouts fall back to a binary search.
+     */
+    static final class EventOccupancy {
+
+        private final long[] stallIds;
+        private final boolean contiguous;
+        private final AtomicLongArray words;
+
+        EventOccupancy(List<Long> ids) {
+            this.stallIds = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+            int n = stallIds.length;
+            this.contiguous = n == 0 || stallIds[n - 1] - stallIds[0] == n - 1;
+            this.words = new AtomicLongArray(Math.max(1, (n + 63) >>> 6));
+        }
+
+        int ordinal(long stallId) {
+            if (stallIds.length == 0)
+                return -1;
+            if (contiguous) {
+                long offset = stallId - stallIds[0];
+                return offset >= 0 && offset < stallIds.length ? (int) offset : -1;
+            }
+            int idx = Arrays.binarySearch(stallIds, stallId);
+            return idx >= 0 ? idx : -1;
+        }
+
+        boolean isBooked(Long stallId) {
+            int ord = stallId != null ? ordinal(stallId) : -1;
+            return ord >= 0 && (words.get(ord >>> 6) & (1L << ord)) != 0;
+        }
+
+        boolean set(Long stallId, boolean booked) {
+            int ord = stallId != null ? ordinal(stallId) : -1;
+            if (ord < 0)
+                return false;
+            long bit = 1L << ord;
+            int w = ord >>> 6;
+            long prev;
+            long next;
+            do {
+                prev = words.get(w);
+                next = booked ? prev | bit : prev & ~bit;
+            } while (prev != next && !words.compareAndSet(w, prev, next));
+            return true;
+        }
+
+        List<Long> bookedIds() {
+            List<Long> result = new ArrayList<>();
+            for (int w = 0; w < words.length(); w++) {
+                long word = words.get(w);
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    result.add(stallIds[(w << 6) + bit]);
+                    word &= word - 1;
+                }
+            }
+            return result;
+        }
+
+        int stallCount() {
+            return stallIds.length;
+        }
+
+        int bookedCount() {
+            int count = 0;
+            for (int w = 0; w < words.length(); w++) {
+                count += Long.bitCount(words.get(w));
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.bookfair.Stall_Reservation.booking;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.config.JwtUtil;
+import com.bookfair.Stall_Reservation.entity.Event;
+import com.bookfair.Stall_Reservation.exception.AdmissionRequiredException;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.realtime.StallAvailabilityPublisher;
+import com.bookfair.Stall_Reservation.repository.EventRepository;
+import com.bookfair.Stall_Reservation.service.EventService;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-sale mode for events with an {@code onSaleAt}. From {@code opens-minutes-before} that time
+ * until {@code active-minutes} after it, vendors join a first-come first-served queue per event and
+ * the booking endpoints for the event require an admission token. Vendors are let out of the
+ * queue at the rate bookings can currently be served: with {@code booking-concurrency} bookings in
+ * flight and the measured average booking time T, the backend completes about concurrency / T
+ * bookings a second, and admissions are held to {@code target-utilization} of that. Positions and
+ * admissions are sent on {@code /user/queue/waiting-room}; joining again answers with the current
+ * place. A few minutes before an event goes on sale its caches are loaded.
+ * <p>
+ * The queue and the measured rate are per node. Admission tokens are signed, so any node accepts
+ * them.
+ */
+@Component
+public class WaitingRoom {
+
+    public static final String HEADER = "Admission-Token";
+    public static final String DESTINATION = "/queue/waiting-room";
+    // Weight of the newest booking time in the running average
+    private static final double SMOOTHING = 0.1;
+
+    private static final class Entry {
+        final Long vendorId;
+        final long seq;
+        String token;
+        long expiresAt;
+
+        Entry(Long vendorId, long seq) {
+            this.vendorId = vendorId;
+            this.seq = seq;
+        }
+    }
+
+    // Guarded by its own monitor
+    private static final class Room {
+        final Long eventId;
+        final ArrayDeque<Entry> waiting = new ArrayDeque<>();
+        final Map<Long, Entry> vendors = new HashMap<>();
+        long joined;
+        long admitted;
+        double credit;
+        double rate;
+
+        Room(Long eventId, double rate) {
+            this.eventId = eventId;
+            this.rate = rate;
+        }
+    }
+
+    private final EventRepository eventRepository;
+    private final EventService eventService;
+    private final EventSnapshotCache snapshotCache;
+    private final StallOccupancyIndex occupancyIndex;
+    private final StallAvailabilityPublisher availabilityPublisher;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final JwtUtil jwtUtil;
+    private final AppProperties.WaitingRoom cfg;
+
+    private volatile Map<Long, LocalDateTime> schedule = Map.of();
+    private final ConcurrentHashMap<Long, Room> rooms = new ConcurrentHashMap<>();
+    private long lastPositionPush;
+    private double bookingSeconds = Double.NaN;
+
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong admissions = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong prewarms = new AtomicLong();
+
+    public WaitingRoom(EventRepository eventRepository, EventService eventService, EventSnapshotCache snapshotCache,
+                       StallOccupancyIndex occupancyIndex, StallAvailabilityPublisher availabilityPublisher,
+                       SimpMessagingTemplate messagingTemplate, JwtUtil jwtUtil, AppProperties appProperties) {
+        this.eventRepository = eventRepository;
+        this.eventService = eventService;
+        this.snapshotCache = snapshotCache;
+        this.occupancyIndex = occupancyIndex;
+        this.availabilityPublisher = availabilityPublisher;
+        this.messagingTemplate = messagingTemplate;
+        this.jwtUtil = jwtUtil;
+        this.cfg = appProperties.getWaitingRoom();
+    }
+
+    /** Joins the event's queue, or returns the vendor's place in it; OPEN when no queue applies. */
+    public Map<String, Object> join(Long eventId, Long vendorId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("eventId", eventId);
+        LocalDateTime onSaleAt = schedule.get(eventId);
+        LocalDateTime now = LocalDateTime.now();
+        if (onSaleAt == null || now.isAfter(onSaleAt.plusMinutes(cfg.getActiveMinutes()))) {
+            result.put("status", "OPEN");
+            return result;
+        }
+        result.put("onSaleAt", onSaleAt.toString());
+        if (now.isBefore(onSaleAt.minusMinutes(cfg.getOpensMinutesBefore()))) {
+            result.put("status", "NOT_OPEN");
+            result.put("opensAt", onSaleAt.minusMinutes(cfg.getOpensMinutesBefore()).toString());
+            return result;
+        }
+        Room room = rooms.computeIfAbsent(eventId, id -> new Room(id, admitRate()));
+        synchronized (room) {
+            Entry entry = room.vendors.get(vendorId);
+            // An admission that was not used in time sends the vendor to the back
+            if (entry != null && entry.token != null && entry.expiresAt <= System.currentTimeMillis())
+                entry = null;
+            if (entry == null) {
+                entry = new Entry(vendorId, room.joined++);
+                room.vendors.put(vendorId, entry);
+                room.waiting.add(entry);
+                joins.incrementAndGet();
+            }
+            result.putAll(describe(room, entry));
+        }
+        return result;
+    }
+
+    /**
+     * Lets the booking through unless the event is in its on-sale window and the token is not an
+     * admission for this vendor and event. Before the event goes on sale nothing gets through.
+     */
+    public void checkAdmission(Long eventId, Long vendorId, String token) {
+        LocalDateTime onSaleAt = schedule.get(eventId);
+        if (onSaleAt == null)
+            return;
+        LocalDateTime now = LocalDateTime.now();
+        if (now.isBefore(onSaleAt))
+            throw new ThrottledException("Booking for this event opens at " + onSaleAt + ".",
+                    Math.max(1, Duration.between(now, onSaleAt).getSeconds()));
+        if (now.isAfter(onSaleAt.plusMinutes(cfg.getActiveMinutes())))
+            return;
+        if (token == null || !jwtUtil.isAdmitted(token, vendorId, eventId)) {
+            refused.incrementAndGet();
+            throw new AdmissionRequiredException("Please join the waiting room for this event to book.", eventId);
+        }
+    }
+
+    /** Feeds the capacity estimate; called with the duration of every booking attempt. */
+    public synchronized void recordBooking(long nanos) {
+        double seconds = nanos / 1e9;
+        bookingSeconds = Double.isNaN(bookingSeconds) ? seconds : bookingSeconds + SMOOTHING * (seconds - bookingSeconds);
+    }
+
+    /** Admissions per second this node can afford, from the measured booking time. */
+    public synchronized double admitRate() {
+        if (Double.isNaN(bookingSeconds) || bookingSeconds <= 0)
+            return cfg.getInitialAdmitPerSecond();
+        double capacity = cfg.getBookingConcurrency() / bookingSeconds;
+        return Math.max(cfg.getMinAdmitPerSecond(), Math.min(cfg.getMaxAdmitPerSecond(),
+                capacity * cfg.getTargetUtilization()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.waiting-room.admit-interval-ms:1000}")
+    public void admit() {
+        LocalDateTime now = LocalDateTime.now();
+        long nowMillis = System.currentTimeMillis();
+        boolean pushPositions = nowMillis - lastPositionPush >= cfg.getPositionPushMs();
+        if (pushPositions)
+            lastPositionPush = nowMillis;
+        long onSale = rooms.keySet().stream()
+                .filter(id -> schedule.get(id) != null && !now.isBefore(schedule.get(id)))
+                .count();
+        double rate = admitRate();
+        long tokenTtl = TimeUnit.MINUTES.toMillis(cfg.getTokenTtlMinutes());
+
+        for (Room room : rooms.values()) {
+            LocalDateTime onSaleAt = schedule.get(room.eventId);
+            if (onSaleAt == null || now.isAfter(onSaleAt.plusMinutes(cfg.getActiveMinutes()))) {
+                rooms.remove(room.eventId);
+                continue;
+            }
+            List<Map.Entry<Long, Map<String, Object>>> messages = new ArrayList<>();
+            int admitted = 0;
+            synchronized (room) {
+                if (!now.isBefore(onSaleAt)) {
+                    // Events on sale at the same time share what this node can serve
+                    room.rate = rate / Math.max(1, onSale);
+                    room.credit += room.rate * cfg.getAdmitIntervalMs() / 1000.0;
+                    while (room.credit >= 1 && !room.waiting.isEmpty()) {
+                        Entry entry = room.waiting.poll();
+                        entry.token = jwtUtil.generateAdmissionToken(entry.vendorId, room.eventId, tokenTtl);
+                        entry.expiresAt = nowMillis + tokenTtl;
+                        room.admitted++;
+                        room.credit--;
+                        admitted++;
+                        messages.add(Map.entry(entry.vendorId, describe(room, entry)));
+                    }
+                    // Capacity not used now cannot be used later
+                    if (room.waiting.isEmpty())
+                        room.credit = Math.min(room.credit, 1);
+                }
+                if (pushPositions)
+                    room.waiting.forEach(entry -> messages.add(Map.entry(entry.vendorId, describe(room, entry))));
+            }
+            admissions.addAndGet(admitted);
+            messages.forEach(message -> push(message.getKey(), message.getValue()));
+        }
+    }
+
+    // Loads what every vendor asks for first when the event opens, while it is still quiet
+    @Scheduled(fixedDelayString = "${app.waiting-room.prewarm-check-ms:30000}")
+    public void refreshAndPrewarm() {
+        refreshSchedule();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.plusMinutes(cfg.getPrewarmMinutes());
+        schedule.forEach((eventId, onSaleAt) -> {
+            if (onSaleAt.isAfter(now) && !onSaleAt.isAfter(horizon)) {
+                try {
+                    occupancyIndex.countStalls(eventId);
+                    snapshotCache.get(eventId, EventSnapshotCache.Kind.DETAIL, () -> eventService.getById(eventId));
+                    snapshotCache.get(eventId, EventSnapshotCache.Kind.AVAILABILITY,
+                            () -> eventService.getStallAvailability(eventId));
+                    availabilityPublisher.snapshot(eventId);
+                    eventService.listUpcoming();
+                    prewarms.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Tried again on the next check
+                }
+            }
+        });
+    }
+
+    /** Rereads which events have an on-sale window; call after changing an event's {@code onSaleAt}. */
+    public void refreshSchedule() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(cfg.getActiveMinutes());
+        Map<Long, LocalDateTime> next = new HashMap<>();
+        for (Event event : eventRepository.findOnSaleSince(since))
+            next.put(event.getId(), event.getOnSaleAt());
+        schedule = next;
+    }
+
+    public Map<String, Object> stats() {
+        int queued = 0;
+        for (Room room : rooms.values()) {
+            synchronized (room) {
+                queued += room.waiting.size();
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("waitingRooms", rooms.size());
+        result.put("waitingRoomQueued", queued);
+        result.put("waitingRoomJoins", joins.get());
+        result.put("waitingRoomAdmissions", admissions.get());
+        result.put("waitingRoomRefused", refused.get());
+        result.put("admitPerSecond", admitRate());
+        synchronized (this) {
+            result.put("avgBookingMillis", Double.isNaN(bookingSeconds) ? null : bookingSeconds * 1000);
+        }
+        result.put("waitingRoomPrewarms", prewarms.get());
+        return result;
+    }
+
+    // Caller holds the room's monitor
+    private static Map<String, Object> describe(Room room, Entry entry) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("eventId", room.eventId);
+        if (entry.token != null) {
+            result.put("status", "ADMITTED");
+            result.put("admissionToken", entry.token);
+            result.put("expiresAt", entry.expiresAt);
+        } else {
+            long position = entry.seq - room.admitted + 1;
+            result.put("status", "WAITING");
+            result.put("position", position);
+            result.put("estimatedWaitSeconds", (long) Math.ceil(position / Math.max(room.rate, 0.001)));
+        }
+        return result;
+    }
+
+    private void push(Long vendorId, Map<String, Object> message) {
+        try {
+            messagingTemplate.convertAndSendToUser(String.valueOf(vendorId), DESTINATION, message);
+        } catch (RuntimeException e) {
+            // Broker unavailable; clients also poll their place
+        }
+    }
+}
@@ -9,11 +9,31 @@ public class AppProperties {
 
     private Booking booking = new Booking();
     private Cancellation cancellation = new Cancellation();
+    private EmailOutbox emailOutbox = new EmailOutbox();
+    private Realtime realtime = new Realtime();
+    private Auth auth = new Auth();
+    private WaitingRoom waitingRoom = new WaitingRoom();
 
     public static class Booking {
         private int maxStallsPerBooking = 3;
         private int advancePercent = 10;
         private int daysBeforeEventNoBooking = 3;
+        private int holdTtlSeconds = 300;
+        private int holdMaxLifetimeSeconds = 900;
+        private long idempotencyTtlSeconds = 86400;
+        private int idempotencyWaitSeconds = 30;
+        private String conflictStrategy = "claim";
+        private int deadlockRetries = 3;
+        private String engine = "transactional";
+        private int engineThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        private int mailboxCapacity = 1000;
+        private int engineWaitSeconds = 30;
+        private int writeTimeoutSeconds = 30;
+        private long groupCommitWindowMs = 2;
+        private int groupCommitMaxSize = 50;
+        private int asyncThreads = 6;
+        private int asyncQueueCapacity = 1000;
+        private int asyncTicketTtlSeconds = 600;
 
         public int getMaxStallsPerBooking() { return maxStallsPerBooking; }
         public void setMaxStallsPerBooking(int maxStallsPerBooking) { this.maxStallsPerBooking = maxStallsPerBooking; }
@@ -21,6 +41,39 @@ public class AppProperties {
         public void setAdvancePercent(int advancePercent) { this.advancePercent = advancePercent; }
         public int getDaysBeforeEventNoBooking() { return daysBeforeEventNoBooking; }
         public void setDaysBeforeEventNoBooking(int daysBeforeEventNoBooking) { this.daysBeforeEventNoBooking = daysBeforeEventNoBooking; }
+        public int getHoldTtlSeconds() { return holdTtlSeconds; }
+        public void setHoldTtlSeconds(int holdTtlSeconds) { this.holdTtlSeconds = holdTtlSeconds; }
+        public int getHoldMaxLifetimeSeconds() { return holdMaxLifetimeSeconds; }
+        public void setHoldMaxLifetimeSeconds(int holdMaxLifetimeSeconds) { this.holdMaxLifetimeSeconds = holdMaxLifetimeSeconds; }
+        public long getIdempotencyTtlSeconds() { return idempotencyTtlSeconds; }
+        public void setIdempotencyTtlSeconds(long idempotencyTtlSeconds) { this.idempotencyTtlSeconds = idempotencyTtlSeconds; }
+        public int getIdempotencyWaitSeconds() { return idempotencyWaitSeconds; }
+        public void setIdempotencyWaitSeconds(int idempotencyWaitSeconds) { this.idempotencyWaitSeconds = idempotencyWaitSeconds; }
+        public String getConflictStrategy() { return conflictStrategy; }
+        public void setConflictStrategy(String conflictStrategy) { this.conflictStrategy = conflictStrategy; }
+        public boolean isLockStrategy() { return "lock".equalsIgnoreCase(conflictStrategy); }
+        public int getDeadlockRetries() { return deadlockRetries; }
+        public void setDeadlockRetries(int deadlockRetries) { this.deadlockRetries = deadlockRetries; }
+        public String getEngine() { return engine; }
+        public void setEngine(String engine) { this.engine = engine; }
+        public int getEngineThreads() { return engineThreads; }
+        public void setEngineThreads(int engineThreads) { this.engineThreads = engineThreads; }
+        public int getMailboxCapacity() { return mailboxCapacity; }
+        public void setMailboxCapacity(int mailboxCapacity) { this.mailboxCapacity = mailboxCapacity; }
+        public int getEngineWaitSeconds() { return engineWaitSeconds; }
+        public void setEngineWaitSeconds(int engineWaitSeconds) { this.engineWaitSeconds = engineWaitSeconds; }
+        public int getWriteTimeoutSeconds() { return writeTimeoutSeconds; }
+        public void setWriteTimeoutSeconds(int writeTimeoutSeconds) { this.writeTimeoutSeconds = writeTimeoutSeconds; }
+        public long getGroupCommitWindowMs() { return groupCommitWindowMs; }
+        public void setGroupCommitWindowMs(long groupCommitWindowMs) { this.groupCommitWindowMs = groupCommitWindowMs; }
+        public int getGroupCommitMaxSize() { return groupCommitMaxSize; }
+        public void setGroupCommitMaxSize(int groupCommitMaxSize) { this.groupCommitMaxSize = groupCommitMaxSize; }
+        public int getAsyncThreads() { return asyncThreads; }
+        public void setAsyncThreads(int asyncThreads) { this.asyncThreads = asyncThreads; }
+        public int getAsyncQueueCapacity() { return asyncQueueCapacity; }
+        public void setAsyncQueueCapacity(int asyncQueueCapacity) { this.asyncQueueCapacity = asyncQueueCapacity; }
+        public int getAsyncTicketTtlSeconds() { return asyncTicketTtlSeconds; }
+        public void setAsyncTicketTtlSeconds(int asyncTicketTtlSeconds) { this.asyncTicketTtlSeconds = asyncTicketTtlSeconds; }
     }
 
     public static class Cancellation {
@@ -30,9 +83,158 @@ public class AppProperties {
         public void setAllowedDaysBefore(int allowedDaysBefore) { this.allowedDaysBefore = allowedDaysBefore; }
     }
 
+    public static class EmailOutbox {
+        private int workerThreads = 4;
+        private int queueCapacity = 500;
+        private int maxAttempts = 6;
+        private long baseBackoffSeconds = 30;
+
+        public int getWorkerThreads() { return workerThreads; }
+        public void setWorkerThreads(int workerThreads) { this.workerThreads = workerThreads; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+        public long getBaseBackoffSeconds() { return baseBackoffSeconds; }
+        public void setBaseBackoffSeconds(long baseBackoffSeconds) { this.baseBackoffSeconds = baseBackoffSeconds; }
+    }
+
+    public static class Realtime {
+        private long coalesceWindowMs = 75;
+        private int publisherThreads = 2;
+        private int publishQueueCapacity = 256;
+        private int maxDeferrals = 40;
+        private String brokerMode = "simple";
+        private String relayHost = "localhost";
+        private int relayPort = 61613;
+        private String relayLogin = "guest";
+        private String relayPasscode = "guest";
+        private String relayVirtualHost;
+        // Outside the /topic and /queue prefixes relayed for browsers, so client frames never reach it
+        private String clusterDestination = "/exchange/amq.topic/bookfair.cluster";
+        private String clusterSecret;
+        private int inboundThreads = 4;
+        private int inboundQueueCapacity = 1000;
+        private int outboundThreads = 8;
+        private int outboundQueueCapacity = 2000;
+        private int sendTimeLimitMs = 10000;
+        private int sendBufferSizeBytes = 256 * 1024;
+        private int presenceTtlSeconds = 30;
+
+        public long getCoalesceWindowMs() { return coalesceWindowMs; }
+        public void setCoalesceWindowMs(long coalesceWindowMs) { this.coalesceWindowMs = coalesceWindowMs; }
+        public int getPublisherThreads() { return publisherThreads; }
+        public void setPublisherThreads(int publisherThreads) { this.publisherThreads = publisherThreads; }
+        public int getPublishQueueCapacity() { return publishQueueCapacity; }
+        public void setPublishQueueCapacity(int publishQueueCapacity) { this.publishQueueCapacity = publishQueueCapacity; }
+        public int getMaxDeferrals() { return maxDeferrals; }
+        public void setMaxDeferrals(int maxDeferrals) { this.maxDeferrals = maxDeferrals; }
+        public String getBrokerMode() { return brokerMode; }
+        public void setBrokerMode(String brokerMode) { this.brokerMode = brokerMode; }
+        public boolean isRelay() { return "relay".equalsIgnoreCase(brokerMode); }
+        public String getRelayHost() { return relayHost; }
+        public void setRelayHost(String relayHost) { this.relayHost = relayHost; }
+        public int getRelayPort() { return relayPort; }
+        public void setRelayPort(int relayPort) { this.relayPort = relayPort; }
+        public String getRelayLogin() { return relayLogin; }
+        public void setRelayLogin(String relayLogin) { this.relayLogin = relayLogin; }
+        public String getRelayPasscode() { return relayPasscode; }
+        public void setRelayPasscode(String relayPasscode) { this.relayPasscode = relayPasscode; }
+        public String getRelayVirtualHost() { return relayVirtualHost; }
+        public void setRelayVirtualHost(String relayVirtualHost) { this.relayVirtualHost = relayVirtualHost; }
+        public String getClusterDestination() { return clusterDestination; }
+        public void setClusterDestination(String clusterDestination) { this.clusterDestination = clusterDestination; }
+        public String getClusterSecret() { return clusterSecret; }
+        public void setClusterSecret(String clusterSecret) { this.clusterSecret = clusterSecret; }
+        public int getInboundThreads() { return inboundThreads; }
+        public void setInboundThreads(int inboundThreads) { this.inboundThreads = inboundThreads; }
+        public int getInboundQueueCapacity() { return inboundQueueCapacity; }
+        public void setInboundQueueCapacity(int inboundQueueCapacity) { this.inboundQueueCapacity = inboundQueueCapacity; }
+        public int getOutboundThreads() { return outboundThreads; }
+        public void setOutboundThreads(int outboundThreads) { this.outboundThreads = outboundThreads; }
+        public int getOutboundQueueCapacity() { return outboundQueueCapacity; }
+        public void setOutboundQueueCapacity(int outboundQueueCapacity) { this.outboundQueueCapacity = outboundQueueCapacity; }
+        public int getSendTimeLimitMs() { return sendTimeLimitMs; }
+        public void setSendTimeLimitMs(int sendTimeLimitMs) { this.sendTimeLimitMs = sendTimeLimitMs; }
+        public int getSendBufferSizeBytes() { return sendBufferSizeBytes; }
+        public void setSendBufferSizeBytes(int sendBufferSizeBytes) { this.sendBufferSizeBytes = sendBufferSizeBytes; }
+        public int getPresenceTtlSeconds() { return presenceTtlSeconds; }
+        public void setPresenceTtlSeconds(int presenceTtlSeconds) { this.presenceTtlSeconds = presenceTtlSeconds; }
+    }
+
+    public static class Auth {
+        private int hashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int hashQueueCapacity = 32;
+        private long hashTimeoutMs = 3000;
+        private int ipBurst = 30;
+        private int ipPerMinute = 30;
+        private int emailBurst = 5;
+        private int emailPerMinute = 5;
+
+        public int getHashThreads() { return hashThreads; }
+        public void setHashThreads(int hashThreads) { this.hashThreads = hashThreads; }
+        public int getHashQueueCapacity() { return hashQueueCapacity; }
+        public void setHashQueueCapacity(int hashQueueCapacity) { this.hashQueueCapacity = hashQueueCapacity; }
+        public long getHashTimeoutMs() { return hashTimeoutMs; }
+        public void setHashTimeoutMs(long hashTimeoutMs) { this.hashTimeoutMs = hashTimeoutMs; }
+        public int getIpBurst() { return ipBurst; }
+        public void setIpBurst(int ipBurst) { this.ipBurst = ipBurst; }
+        public int getIpPerMinute() { return ipPerMinute; }
+        public void setIpPerMinute(int ipPerMinute) { this.ipPerMinute = ipPerMinute; }
+        public int getEmailBurst() { return emailBurst; }
+        public void setEmailBurst(int emailBurst) { this.emailBurst = emailBurst; }
+        public int getEmailPerMinute() { return emailPerMinute; }
+        public void setEmailPerMinute(int emailPerMinute) { this.emailPerMinute = emailPerMinute; }
+    }
+
+    public static class WaitingRoom {
+        private int opensMinutesBefore = 30;
+        private int activeMinutes = 60;
+        private double initialAdmitPerSecond = 10;
+        private double minAdmitPerSecond = 1;
+        private double maxAdmitPerSecond = 200;
+        private int bookingConcurrency = 6;
+        private double targetUtilization = 0.8;
+        private int tokenTtlMinutes = 10;
+        private long admitIntervalMs = 1000;
+        private long positionPushMs = 5000;
+        private int prewarmMinutes = 5;
+
+        public int getOpensMinutesBefore() { return opensMinutesBefore; }
+        public void setOpensMinutesBefore(int opensMinutesBefore) { this.opensMinutesBefore = opensMinutesBefore; }
+        public int getActiveMinutes() { return activeMinutes; }
+        public void setActiveMinutes(int activeMinutes) { this.activeMinutes = activeMinutes; }
+        public double getInitialAdmitPerSecond() { return initialAdmitPerSecond; }
+        public void setInitialAdmitPerSecond(double initialAdmitPerSecond) { this.initialAdmitPerSecond = initialAdmitPerSecond; }
+        public double getMinAdmitPerSecond() { return minAdmitPerSecond; }
+        public void setMinAdmitPerSecond(double minAdmitPerSecond) { this.minAdmitPerSecond = minAdmitPerSecond; }
+        public double getMaxAdmitPerSecond() { return maxAdmitPerSecond; }
+        public void setMaxAdmitPerSecond(double maxAdmitPerSecond) { this.maxAdmitPerSecond = maxAdmitPerSecond; }
+        public int getBookingConcurrency() { return bookingConcurrency; }
+        public void setBookingConcurrency(int bookingConcurrency) { this.bookingConcurrency = bookingConcurrency; }
+        public double getTargetUtilization() { return targetUtilization; }
+        public void setTargetUtilization(double targetUtilization) { this.targetUtilization = targetUtilization; }
+        public int getTokenTtlMinutes() { return tokenTtlMinutes; }
+        public void setTokenTtlMinutes(int tokenTtlMinutes) { this.tokenTtlMinutes = tokenTtlMinutes; }
+        public long getAdmitIntervalMs() { return admitIntervalMs; }
+        public void setAdmitIntervalMs(long admitIntervalMs) { this.admitIntervalMs = admitIntervalMs; }
+        public long getPositionPushMs() { return positionPushMs; }
+        public void setPositionPushMs(long positionPushMs) { this.positionPushMs = positionPushMs; }
+        public int getPrewarmMinutes() { return prewarmMinutes; }
+        public void setPrewarmMinutes(int prewarmMinutes) { this.prewarmMinutes = prewarmMinutes; }
+    }
+
     public Booking getBooking() { return booking; }
     public void setBooking(Booking booking) { this.booking = booking; }
     public Cancellation getCancellation() { return cancellation; }
     public void setCancellation(Cancellation cancellation) { this.cancellation = cancellation; }
+    public EmailOutbox getEmailOutbox() { return emailOutbox; }
+    public void setEmailOutbox(EmailOutbox emailOutbox) { this.emailOutbox = emailOutbox; }
+    public Realtime getRealtime() { return realtime; }
+    public void setRealtime(Realtime realtime) { this.realtime = realtime; }
+    public Auth getAuth() { return auth; }
+    public void setAuth(Auth auth) { this.auth = auth; }
+    public WaitingRoom getWaitingRoom() { return waitingRoom; }
+    public void setWaitingRoom(WaitingRoom waitingRoom) { this.waitingRoom = waitingRoom; }
 }
 
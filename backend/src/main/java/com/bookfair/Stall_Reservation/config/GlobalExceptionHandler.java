@@ -1,6 +1,9 @@
 package com.bookfair.Stall_Reservation.config;
 
-import jakarta.security.auth.message.AuthException;
+import com.bookfair.Stall_Reservation.exception.AdmissionRequiredException;
+import com.bookfair.Stall_Reservation.exception.AuthException;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -18,6 +21,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", e.getMessage()));
     }
 
+    // The client should join the event's waiting room and retry with the admission token it gets there
+    @ExceptionHandler(AdmissionRequiredException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionRequired(AdmissionRequiredException e) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("message", e.getMessage(), "eventId", e.getEventId(), "waitingRoom", true));
+    }
+
+    @ExceptionHandler(ThrottledException.class)
+    public ResponseEntity<Map<String, String>> handleThrottled(ThrottledException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidation(MethodArgumentNotValidException e) {
         String message = e.getBindingResult().getFieldErrors().stream()
@@ -0,0 +1,48 @@
+package com.bookfair.Stall_Reservation.config;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hot-path entities draw ids from pooled sequences (emulated as *_seq tables on MySQL) so that
+ * their inserts can be batched. Rows created while those tables used AUTO_INCREMENT would collide
+ * with a fresh sequence, so every sequence is moved past its table's highest id before anything
+ * else (including {@link DataSeeder}) inserts.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IdSequenceInitializer implements ApplicationRunner {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final List<String> TABLES = List.of(
+            "reservations", "reservation_stalls", "reservation_genres", "reservation_logs", "payments", "stalls",
+            "email_outbox");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Databases with real sequences (H2 in tests) have no *_seq tables to move
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database))
+            return;
+        for (String table : TABLES) {
+            // The pooled optimizer hands out (next_val - ALLOCATION_SIZE, next_val] for a fetched next_val
+            jdbcTemplate.update("UPDATE " + table + "_seq SET next_val = GREATEST(next_val, "
+                    + "(SELECT COALESCE(MAX(id), 0) + " + ALLOCATION_SIZE + " FROM " + table + "))");
+        }
+    }
+}
@@ -8,10 +8,17 @@ import org.springframework.stereotype.Component;
 public class JwtProperties {
 
     private String secret;
-    private long expirationMs = 86400000;
+    // Access tokens; kept short so revocations only need to be remembered briefly
+    private long expirationMs = 900000;
+    private long refreshExpirationMs = 86400000;
+    private int verifiedCacheSize = 10000;
 
     public String getSecret() { return secret; }
     public void setSecret(String secret) { this.secret = secret; }
     public long getExpirationMs() { return expirationMs; }
     public void setExpirationMs(long expirationMs) { this.expirationMs = expirationMs; }
+    public long getRefreshExpirationMs() { return refreshExpirationMs; }
+    public void setRefreshExpirationMs(long refreshExpirationMs) { this.refreshExpirationMs = refreshExpirationMs; }
+    public int getVerifiedCacheSize() { return verifiedCacheSize; }
+    public void setVerifiedCacheSize(int verifiedCacheSize) { this.verifiedCacheSize = verifiedCacheSize; }
 }
@@ -2,67 +2,210 @@ package com.bookfair.Stall_Reservation.config;
 
 import com.bookfair.Stall_Reservation.entity.User;
 import com.bookfair.Stall_Reservation.enums.UserRole;
+import com.bookfair.Stall_Reservation.security.JwtPrincipal;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 public class JwtUtil {
 
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final String ADMISSION = "admission";
+
     private final JwtProperties props;
     private final SecretKey key;
+    // Immutable and thread-safe, so one instance serves every request
+    private final JwtParser parser;
+    private final VerifiedTokens verified;
 
     public JwtUtil(JwtProperties props) {
         this.props = props;
         this.key = Keys.hmacShaKeyFor(props.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verified = new VerifiedTokens(props.getVerifiedCacheSize());
     }
 
     // Generate JWT Token
     public String generateToken(User user) {
+        return generate(user, ACCESS, props.getExpirationMs());
+    }
+
+    public String generateRefreshToken(User user) {
+        return generate(user, REFRESH, props.getRefreshExpirationMs());
+    }
+
+    private String generate(User user, String type, long lifetimeMs) {
         return Jwts.builder()
                 .setSubject(user.getEmail())   // 0.11.5 syntax
                 .claim("userId", user.getId())
                 .claim("role", user.getRole().name())
+                .claim("ver", user.getTokenVersion())
+                .claim("typ", type)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + props.getExpirationMs()))
+                .setExpiration(new Date(System.currentTimeMillis() + lifetimeMs))
                 .signWith(key, SignatureAlgorithm.HS256) // Must include algorithm
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
-        return getClaims(token).getSubject();
+    /** Lets the vendor book for the event until it expires; handed out by the waiting room. */
+    public String generateAdmissionToken(Long userId, Long eventId, long lifetimeMs) {
+        return Jwts.builder()
+                .claim("userId", userId)
+                .claim("eventId", eventId)
+                .claim("typ", ADMISSION)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + lifetimeMs))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
     }
 
-    public Object getUserIdFromToken(String token) {
-        return getClaims(token).get("userId");
+    /** True if the token is an unexpired admission for this user and event, issued by any node. */
+    public boolean isAdmitted(String token, Long userId, Long eventId) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+        return ADMISSION.equals(claims.get("typ"))
+                && claims.get("userId") instanceof Number u && u.longValue() == userId
+                && claims.get("eventId") instanceof Number e && e.longValue() == eventId;
+    }
+
+    /**
+     * Verifies the access token and returns what it says about the user, or null if it is
+     * malformed, forged, expired, a refresh token or lacks a usable user id and role. Tokens
+     * verified before are answered from memory until they expire. Revocation is checked by the caller.
+     */
+    public JwtPrincipal parse(String token) {
+        TokenHash hash = verified.enabled() ? TokenHash.of(token) : null;
+        if (hash != null) {
+            JwtPrincipal cached = verified.get(hash);
+            if (cached != null)
+                return cached;
+        }
+        JwtPrincipal principal = verify(token, ACCESS);
+        if (principal != null && hash != null)
+            verified.put(hash, principal);
+        return principal;
     }
 
-    public UserRole getRoleFromToken(String token) {
-        String role = getClaims(token).get("role", String.class);
-        return UserRole.valueOf(role);
+    /** Like {@link #parse} for refresh tokens; never cached, since each is used once per access token lifetime. */
+    public JwtPrincipal parseRefresh(String token) {
+        return verify(token, REFRESH);
     }
 
-    public boolean validateToken(String token) {
+    private JwtPrincipal verify(String token, String type) {
+        Claims claims;
         try {
-            getClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        // Tokens from before refresh tokens existed carry neither typ nor ver and are access tokens
+        Object typeClaim = claims.get("typ");
+        if (!type.equals(typeClaim == null ? ACCESS : typeClaim))
+            return null;
+        Long userId = null;
+        Object userIdClaim = claims.get("userId");
+        if (userIdClaim instanceof Number n) {
+            userId = n.longValue();
+        } else if (userIdClaim instanceof String str) {
+            try {
+                userId = Long.parseLong(str);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        int version = claims.get("ver") instanceof Number n ? n.intValue() : 0;
+        UserRole role;
+        try {
+            role = UserRole.valueOf(claims.get("role", String.class));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (userId == null || claims.getExpiration() == null)
+            return null;
+        return new JwtPrincipal(userId, claims.getSubject(), role, version, claims.getExpiration().getTime());
+    }
+
+    // First 128 bits of the token's SHA-256, so the cache holds no usable bearer tokens
+    private record TokenHash(long high, long low) {
+
+        static TokenHash of(String token) {
+            try {
+                ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.UTF_8)));
+                return new TokenHash(digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
         }
     }
 
-    // Extract claims from token
-    private Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Bounded LRU of verified tokens, split into independently locked segments so concurrent
+     * requests rarely wait on each other.
+     */
+    private static final class VerifiedTokens {
+
+        private static final int SEGMENTS = 16;
+
+        private final Map<TokenHash, JwtPrincipal>[] segments;
+
+        @SuppressWarnings("unchecked")
+        VerifiedTokens(int capacity) {
+            int perSegment = capacity / SEGMENTS;
+            segments = new Map[perSegment > 0 ? SEGMENTS : 0];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<TokenHash, JwtPrincipal> eldest) {
+                        return size() > perSegment;
+                    }
+                };
+            }
+        }
+
+        boolean enabled() {
+            return segments.length > 0;
+        }
+
+        JwtPrincipal get(TokenHash hash) {
+            Map<TokenHash, JwtPrincipal> segment = segment(hash);
+            synchronized (segment) {
+                JwtPrincipal principal = segment.get(hash);
+                if (principal == null || principal.expiresAtMillis() > System.currentTimeMillis())
+                    return principal;
+                segment.remove(hash);
+                return null;
+            }
+        }
+
+        void put(TokenHash hash, JwtPrincipal principal) {
+            Map<TokenHash, JwtPrincipal> segment = segment(hash);
+            synchronized (segment) {
+                segment.put(hash, principal);
+            }
+        }
+
+        private Map<TokenHash, JwtPrincipal> segment(TokenHash hash) {
+            return segments[(int) (hash.low() & (SEGMENTS - 1))];
+        }
     }
 }
@@ -46,6 +46,8 @@ public class SecurityConfig {
                         // Public endpoints
                         .requestMatchers("/api/auth/**").permitAll()       // login/register/forgot-password
                         .requestMatchers("/api/public/**").permitAll()     // public resources
+                        .requestMatchers("/api/events/*/holds").hasAuthority("ROLE_VENDOR") // stall holds
+                        .requestMatchers("/api/events/*/waiting-room").hasAuthority("ROLE_VENDOR") // on-sale queue
                         .requestMatchers("/api/events/**").permitAll()     // view events
                         .requestMatchers("/api/payment/config").permitAll() // payment config
                         .requestMatchers("/ws/**", "/uploads/**").permitAll() // websockets & uploads
@@ -0,0 +1,37 @@
+package com.bookfair.Stall_Reservation.config;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the claim tables in line with the reservations: claims for reservations that are no longer
+ * active are dropped and active reservations without claims (made before the tables existed, or
+ * while the lock strategy was in use) get them. Where old data already has a stall booked twice,
+ * the first reservation keeps the claim.
+ */
+@Component
+public class StallClaimInitializer implements ApplicationRunner {
+
+    private static final String ACTIVE = "('PENDING', 'SUCCESS')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StallClaimInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.update("DELETE FROM stall_claims WHERE reservation_id NOT IN "
+                + "(SELECT id FROM reservations WHERE status IN " + ACTIVE + ")");
+        jdbcTemplate.update("DELETE FROM vendor_event_claims WHERE reservation_id NOT IN "
+                + "(SELECT id FROM reservations WHERE status IN " + ACTIVE + ")");
+        jdbcTemplate.update("INSERT IGNORE INTO stall_claims (stall_id, event_id, reservation_id) "
+                + "SELECT rs.stall_id, r.event_id, r.id FROM reservation_stalls rs JOIN reservations r ON r.id = rs.reservation_id "
+                + "WHERE r.status IN " + ACTIVE + " ORDER BY r.id");
+        jdbcTemplate.update("INSERT IGNORE INTO vendor_event_claims (reservation_id, vendor_id, event_id) "
+                + "SELECT r.id, r.vendor_id, r.event_id FROM reservations r WHERE r.status IN " + ACTIVE + " ORDER BY r.id");
+    }
+}
@@ -0,0 +1,35 @@
+package com.bookfair.Stall_Reservation.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * What {@code @EnableWebSocketMessageBroker} sets up, except that a client whose send buffer fills
+ * up loses its oldest queued frames instead of its session. Stall deltas are numbered, so such a
+ * client sees a gap and reloads the current snapshot rather than working through a backlog. A send
+ * blocked for longer than the send time limit still closes the session.
+ */
+@Configuration
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        SubProtocolWebSocketHandler handler = new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(),
+                        ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+            }
+        };
+        handler.setPhase(getPhase());
+        return handler;
+    }
+}
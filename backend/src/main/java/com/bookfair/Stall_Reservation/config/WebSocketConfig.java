@@ -1,23 +1,84 @@
 package com.bookfair.Stall_Reservation.config;
 
+import com.bookfair.Stall_Reservation.security.StompAuthInterceptor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+// The broker itself is set up by WebSocketBrokerConfiguration
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final AppProperties appProperties;
+    private final StompAuthInterceptor stompAuthInterceptor;
+
+    public WebSocketConfig(AppProperties appProperties, StompAuthInterceptor stompAuthInterceptor) {
+        this.appProperties = appProperties;
+        this.stompAuthInterceptor = stompAuthInterceptor;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        AppProperties.Realtime realtime = appProperties.getRealtime();
+        if (realtime.isRelay()) {
+            // Every node relays /topic to the same external broker, so a message sent on one node
+            // reaches subscribers connected to any of them
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(realtime.getRelayHost())
+                    .setRelayPort(realtime.getRelayPort())
+                    .setClientLogin(realtime.getRelayLogin())
+                    .setClientPasscode(realtime.getRelayPasscode())
+                    .setSystemLogin(realtime.getRelayLogin())
+                    .setSystemPasscode(realtime.getRelayPasscode());
+            if (realtime.getRelayVirtualHost() != null)
+                relay.setVirtualHost(realtime.getRelayVirtualHost());
+            // A message for a user connected to another node is handed over through the broker
+            relay.setUserDestinationBroadcast("/topic/unresolved-user")
+                    .setUserRegistryBroadcast("/topic/user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         config.setApplicationDestinationPrefixes("/app");
+        // Per-vendor messages (booking outcomes) go to /user/queue/...
+        config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOrigins("http://localhost:5173", "http://localhost:3000", "http://127.0.0.1:5173").withSockJS();
+        String[] origins = {"http://localhost:5173", "http://localhost:3000", "http://127.0.0.1:5173"};
+        // Plain WebSocket for clients that have it; Tomcat negotiates permessage-deflate on it when
+        // the browser offers it. SockJS stays for the rest.
+        registry.addEndpoint("/ws/native").setAllowedOrigins(origins);
+        registry.addEndpoint("/ws").setAllowedOrigins(origins).withSockJS();
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        AppProperties.Realtime realtime = appProperties.getRealtime();
+        registration.setSendTimeLimit(realtime.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(realtime.getSendBufferSizeBytes());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        AppProperties.Realtime realtime = appProperties.getRealtime();
+        registration.taskExecutor()
+                .corePoolSize(realtime.getInboundThreads())
+                .maxPoolSize(realtime.getInboundThreads())
+                .queueCapacity(realtime.getInboundQueueCapacity());
+        registration.interceptors(stompAuthInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        AppProperties.Realtime realtime = appProperties.getRealtime();
+        registration.taskExecutor()
+                .corePoolSize(realtime.getOutboundThreads())
+                .maxPoolSize(realtime.getOutboundThreads())
+                .queueCapacity(realtime.getOutboundQueueCapacity());
     }
 }
@@ -2,8 +2,11 @@ package com.bookfair.Stall_Reservation.controller;
 
 import com.bookfair.Stall_Reservation.dto.auth.ForgotPasswordRequest;
 import com.bookfair.Stall_Reservation.dto.auth.LoginRequest;
+import com.bookfair.Stall_Reservation.dto.auth.RefreshTokenRequest;
 import com.bookfair.Stall_Reservation.dto.auth.RegisterRequest;
+import com.bookfair.Stall_Reservation.security.LoginThrottle;
 import com.bookfair.Stall_Reservation.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,19 +19,30 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, LoginThrottle loginThrottle) {
         this.authService = authService;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req, HttpServletRequest request) {
+        loginThrottle.checkIp(request.getRemoteAddr());
+        loginThrottle.checkEmail(req.getEmail());
         Map<String, Object> result = authService.login(req.getEmail(), req.getPassword(), req.getRole());
         return ResponseEntity.ok(result);
     }
 
+    // Trades a refresh token for a new access/refresh pair
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest req) {
+        return ResponseEntity.ok(authService.refresh(req.getRefreshToken()));
+    }
+
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest req) {
+    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest req, HttpServletRequest request) {
+        loginThrottle.checkIp(request.getRemoteAddr());
         if (!req.getNewPassword().equals(req.getConfirmPassword())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Passwords do not match"));
         }
@@ -37,7 +51,9 @@ public class AuthController {
     }
 
     @PostMapping("/forgot-password")
-    public ResponseEntity<?> forgotPassword(@Valid @RequestBody ForgotPasswordRequest req) {
+    public ResponseEntity<?> forgotPassword(@Valid @RequestBody ForgotPasswordRequest req, HttpServletRequest request) {
+        loginThrottle.checkIp(request.getRemoteAddr());
+        loginThrottle.checkEmail(req.getEmail());
         if (!req.getNewPassword().equals(req.getConfirmPassword())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Passwords do not match"));
         }
@@ -1,20 +1,46 @@
 package com.bookfair.Stall_Reservation.controller;
 
+import com.bookfair.Stall_Reservation.booking.EventSnapshotCache;
+import com.bookfair.Stall_Reservation.booking.WaitingRoom;
+import com.bookfair.Stall_Reservation.realtime.StallAvailabilityPublisher;
 import com.bookfair.Stall_Reservation.service.EventService;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/events")
 public class EventController {
 
     private final EventService eventService;
+    private final StallHoldService stallHoldService;
+    private final EventSnapshotCache snapshotCache;
+    private final StallAvailabilityPublisher availabilityPublisher;
+    private final WaitingRoom waitingRoom;
 
-    public EventController(EventService eventService) {
+    public EventController(EventService eventService, StallHoldService stallHoldService,
+                           EventSnapshotCache snapshotCache, StallAvailabilityPublisher availabilityPublisher,
+                           WaitingRoom waitingRoom) {
         this.eventService = eventService;
+        this.stallHoldService = stallHoldService;
+        this.snapshotCache = snapshotCache;
+        this.availabilityPublisher = availabilityPublisher;
+        this.waitingRoom = waitingRoom;
+    }
+
+    private Long currentUserId(Authentication auth) {
+        if (auth == null || auth.getPrincipal() == null)
+            return null;
+        return (Long) auth.getPrincipal();
     }
 
     @GetMapping
@@ -24,17 +50,95 @@ public class EventController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getById(@PathVariable Long id) {
-        Map<String, Object> result = eventService.getById(id);
-        if (result == null) {
+    public ResponseEntity<?> getById(@PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return snapshot(id, EventSnapshotCache.Kind.DETAIL, () -> eventService.getById(id), ifNoneMatch, acceptEncoding);
+    }
+
+    @GetMapping("/{id}/stall-availability")
+    public ResponseEntity<?> stallAvailability(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return snapshot(id, EventSnapshotCache.Kind.AVAILABILITY, () -> eventService.getStallAvailability(id),
+                ifNoneMatch, acceptEncoding);
+    }
+
+    // Baseline for the delta stream on /topic/stalls/{id}; clients refetch it when they miss a sequence number
+    @GetMapping("/{id}/stalls/snapshot")
+    public ResponseEntity<Map<String, Object>> stallSnapshot(@PathVariable Long id) {
+        Map<String, Object> snapshot = availabilityPublisher.snapshot(id);
+        if (snapshot == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(snapshot);
+    }
+
+    // Serves the pre-serialized payload; a matching If-None-Match is answered from the version alone
+    private ResponseEntity<?> snapshot(Long id, EventSnapshotCache.Kind kind, Supplier<Object> loader,
+                                       String ifNoneMatch, String acceptEncoding) {
+        CacheControl cacheControl = CacheControl.noCache();
+        String etag = snapshotCache.etag(id, kind);
+        if (etag != null && matches(ifNoneMatch, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+
+        EventSnapshotCache.Snapshot snapshot = snapshotCache.get(id, kind, loader);
+        if (snapshot == null)
             return ResponseEntity.notFound().build();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip)
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        return builder.body(snapshot.json());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/"))
+                c = c.substring(2);
+            if (c.equals(opaque))
+                return true;
         }
-        return ResponseEntity.ok(result);
+        return false;
     }
 
-    @GetMapping("/{id}/stall-availability")
-    public ResponseEntity<List<Map<String, Object>>> stallAvailability(@PathVariable Long id) {
-        List<Map<String, Object>> result = eventService.getStallAvailability(id);
-        return ResponseEntity.ok(result);
+    @PostMapping("/{id}/holds")
+    public ResponseEntity<?> placeHold(@PathVariable Long id, @RequestBody Map<String, List<Long>> body,
+                                       @RequestHeader(value = WaitingRoom.HEADER, required = false) String admissionToken,
+                                       Authentication auth) {
+        Long userId = currentUserId(auth);
+        if (userId == null)
+            return ResponseEntity.status(401).build();
+        waitingRoom.checkAdmission(id, userId, admissionToken);
+        return ResponseEntity.ok(stallHoldService.placeHold(id, body.get("stallIds"), userId));
+    }
+
+    // Joining again returns the same place in the queue, or the token once admitted
+    @PostMapping("/{id}/waiting-room")
+    public ResponseEntity<?> joinWaitingRoom(@PathVariable Long id, Authentication auth) {
+        Long userId = currentUserId(auth);
+        if (userId == null)
+            return ResponseEntity.status(401).build();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(waitingRoom.join(id, userId));
+    }
+
+    @DeleteMapping("/{id}/holds")
+    public ResponseEntity<?> releaseHold(@PathVariable Long id, Authentication auth) {
+        Long userId = currentUserId(auth);
+        if (userId == null)
+            return ResponseEntity.status(401).build();
+        stallHoldService.releaseHold(id, userId);
+        return ResponseEntity.ok(Map.of("message", "Hold released"));
     }
 }
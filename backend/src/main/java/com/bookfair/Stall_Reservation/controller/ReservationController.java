@@ -1,16 +1,26 @@
 package com.bookfair.Stall_Reservation.controller;
 
+import com.bookfair.Stall_Reservation.booking.AsyncBookingQueue;
+import com.bookfair.Stall_Reservation.booking.IdempotencyStore;
+import com.bookfair.Stall_Reservation.booking.WaitingRoom;
 import com.bookfair.Stall_Reservation.entity.Reservation;
 import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.service.QrCodeService;
 import com.bookfair.Stall_Reservation.service.ReservationService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,9 +28,19 @@ import java.util.stream.Collectors;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final QrCodeService qrCodeService;
+    private final IdempotencyStore idempotencyStore;
+    private final AsyncBookingQueue asyncBookingQueue;
+    private final WaitingRoom waitingRoom;
 
-    public ReservationController(ReservationService reservationService) {
+    public ReservationController(ReservationService reservationService, QrCodeService qrCodeService,
+                                 IdempotencyStore idempotencyStore, AsyncBookingQueue asyncBookingQueue,
+                                 WaitingRoom waitingRoom) {
         this.reservationService = reservationService;
+        this.qrCodeService = qrCodeService;
+        this.idempotencyStore = idempotencyStore;
+        this.asyncBookingQueue = asyncBookingQueue;
+        this.waitingRoom = waitingRoom;
     }
 
     private Long currentUserId(Authentication auth) {
@@ -29,21 +49,58 @@ public class ReservationController {
         return (Long) auth.getPrincipal();
     }
 
+    // With "Prefer: respond-async" the booking is queued and answered with 202 and a ticket; the outcome
+    // is pushed on /user/queue/bookings and can be polled at /api/reservations/requests/{ticket}
     @PostMapping("/book")
-    public ResponseEntity<?> createBooking(@Valid @RequestBody CreateBookingRequest request, Authentication auth) {
+    public ResponseEntity<?> createBooking(@Valid @RequestBody CreateBookingRequest request,
+                                           @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                           @RequestHeader(value = "Prefer", required = false) String prefer,
+                                           @RequestHeader(value = WaitingRoom.HEADER, required = false) String admissionToken,
+                                           Authentication auth) {
         Long userId = currentUserId(auth);
         if (userId == null)
             return ResponseEntity.status(401).build();
-        try {
-            Reservation r = reservationService.createPendingReservation(request, userId);
-            return ResponseEntity.ok(Map.of(
-                    "reservationId", r.getId(),
-                    "bookingId", r.getBookingId(),
-                    "advanceAmount", r.getAdvanceAmount(),
-                    "totalAmount", r.getTotalAmount()));
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
-        }
+        boolean async = prefer != null && prefer.toLowerCase().contains("respond-async");
+        Object fingerprint = Arrays.asList(request.getEventId(), request.getStallIds(), request.getGenreIds(),
+                request.getStallDescription(), request.getPaymentMethod(), request.getAccountNumber(),
+                request.getBankName(), request.getAddress(), async);
+        return idempotencyStore.execute(userId, idempotencyKey, fingerprint, () -> {
+            try {
+                waitingRoom.checkAdmission(request.getEventId(), userId, admissionToken);
+                if (async) {
+                    Map<String, Object> ticket = asyncBookingQueue.submit(request, userId);
+                    return ResponseEntity.accepted()
+                            .location(URI.create("/api/reservations/requests/" + ticket.get("ticket")))
+                            .header("Preference-Applied", "respond-async")
+                            .body(ticket);
+                }
+                long start = System.nanoTime();
+                Reservation r;
+                try {
+                    r = reservationService.createPendingReservation(request, userId);
+                } finally {
+                    waitingRoom.recordBooking(System.nanoTime() - start);
+                }
+                return ResponseEntity.ok(Map.of(
+                        "reservationId", r.getId(),
+                        "bookingId", r.getBookingId(),
+                        "advanceAmount", r.getAdvanceAmount(),
+                        "totalAmount", r.getTotalAmount()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
+    }
+
+    @GetMapping("/requests/{ticket}")
+    public ResponseEntity<?> bookingRequest(@PathVariable String ticket, Authentication auth) {
+        Long userId = currentUserId(auth);
+        if (userId == null)
+            return ResponseEntity.status(401).build();
+        Map<String, Object> status = asyncBookingQueue.status(ticket, userId);
+        if (status == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(status);
     }
 
     @PostMapping("/{id}/approve")
@@ -158,6 +215,40 @@ public class ReservationController {
         return ResponseEntity.ok(m);
     }
 
+    @GetMapping("/{id}/qr")
+    public ResponseEntity<?> getQr(@PathVariable Long id,
+                                   @RequestParam(defaultValue = "svg") String format,
+                                   @RequestParam(defaultValue = "256") int size,
+                                   @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                                   Authentication auth) {
+        Long userId = currentUserId(auth);
+        if (userId == null)
+            return ResponseEntity.status(401).build();
+        boolean svg = "svg".equalsIgnoreCase(format);
+        if (!svg && !"png".equalsIgnoreCase(format))
+            return ResponseEntity.badRequest().body(Map.of("message", "format must be svg or png"));
+        size = Math.max(64, Math.min(size, 1024));
+
+        Reservation r = reservationService.getById(id);
+        boolean isAdmin = auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        if (r == null || (!isAdmin && !r.getVendor().getId().equals(userId)))
+            return ResponseEntity.notFound().build();
+
+        // The image depends only on the booking ID, size and format, so it never changes for a given tag
+        String etag = "\"" + r.getBookingId() + "-" + size + (svg ? ".svg" : ".png") + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+        if (etag.equals(ifNoneMatch))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+
+        byte[] body = svg ? qrCodeService.generateSvg(r.getBookingId(), size)
+                : qrCodeService.generatePng(r.getBookingId(), size);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(svg ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG)
+                .body(body);
+    }
+
     @GetMapping("/check")
     public ResponseEntity<?> checkReservation(@RequestParam Long eventId, Authentication auth) {
         Long userId = currentUserId(auth);
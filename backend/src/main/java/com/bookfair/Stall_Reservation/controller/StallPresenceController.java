@@ -0,0 +1,27 @@
+package com.bookfair.Stall_Reservation.controller;
+
+import com.bookfair.Stall_Reservation.dto.event.StallSelectionMessage;
+import com.bookfair.Stall_Reservation.realtime.StallPresenceTracker;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+@Controller
+public class StallPresenceController {
+
+    private final StallPresenceTracker presenceTracker;
+
+    public StallPresenceController(StallPresenceTracker presenceTracker) {
+        this.presenceTracker = presenceTracker;
+    }
+
+    // STOMP SEND to /app/events/{eventId}/select; the aggregate goes out on /topic/presence/{eventId}
+    @MessageMapping("/events/{eventId}/select")
+    public void select(@DestinationVariable Long eventId, @Payload StallSelectionMessage message,
+                       SimpMessageHeaderAccessor accessor) {
+        presenceTracker.update(accessor.getSessionId(), eventId,
+                message.getSelectedStallIds(), message.getViewingStallId());
+    }
+}
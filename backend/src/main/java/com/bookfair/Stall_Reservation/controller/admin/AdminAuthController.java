@@ -0,0 +1,34 @@
+package com.bookfair.Stall_Reservation.controller.admin;
+
+import com.bookfair.Stall_Reservation.security.LoginThrottle;
+import com.bookfair.Stall_Reservation.security.PasswordHasher;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/auth")
+public class AdminAuthController {
+
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
+    private final TokenRevocations tokenRevocations;
+
+    public AdminAuthController(PasswordHasher passwordHasher, LoginThrottle loginThrottle,
+                               TokenRevocations tokenRevocations) {
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
+        this.tokenRevocations = tokenRevocations;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(passwordHasher.stats());
+        stats.putAll(loginThrottle.stats());
+        stats.put("revokedUsers", tokenRevocations.size());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookfair.Stall_Reservation.controller.admin;
+
+import com.bookfair.Stall_Reservation.enums.OutboxStatus;
+import com.bookfair.Stall_Reservation.service.EmailOutboxService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/email-outbox")
+public class AdminEmailOutboxController {
+
+    private final EmailOutboxService emailOutboxService;
+
+    public AdminEmailOutboxController(EmailOutboxService emailOutboxService) {
+        this.emailOutboxService = emailOutboxService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> list(@RequestParam(defaultValue = "DEAD") OutboxStatus status) {
+        return ResponseEntity.ok(emailOutboxService.list(status));
+    }
+
+    @PostMapping("/{id}/redrive")
+    public ResponseEntity<?> redrive(@PathVariable Long id) {
+        try {
+            emailOutboxService.redrive(id);
+            return ResponseEntity.ok(Map.of("message", "Email queued for delivery"));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/redrive")
+    public ResponseEntity<?> redriveAll() {
+        int count = emailOutboxService.redriveAllDead();
+        return ResponseEntity.ok(Map.of("message", count + " email(s) queued for delivery", "count", count));
+    }
+}
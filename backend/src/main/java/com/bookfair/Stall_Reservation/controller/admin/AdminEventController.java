@@ -1,11 +1,14 @@
 package com.bookfair.Stall_Reservation.controller.admin;
 
+import com.bookfair.Stall_Reservation.booking.WaitingRoom;
 import com.bookfair.Stall_Reservation.service.EventService;
 import com.bookfair.Stall_Reservation.service.StallService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -15,10 +18,12 @@ public class AdminEventController {
 
     private final EventService eventService;
     private final StallService stallService;
+    private final WaitingRoom waitingRoom;
 
-    public AdminEventController(EventService eventService, StallService stallService) {
+    public AdminEventController(EventService eventService, StallService stallService, WaitingRoom waitingRoom) {
         this.eventService = eventService;
         this.stallService = stallService;
+        this.waitingRoom = waitingRoom;
     }
 
     @GetMapping
@@ -39,12 +44,29 @@ public class AdminEventController {
         Long adminId = (Long) auth.getPrincipal();
         try {
             Long eventId = eventService.createEvent(body, adminId);
+            waitingRoom.refreshSchedule();
             return ResponseEntity.ok(Map.of("id", eventId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
     }
 
+    // Body {"onSaleAt": "2026-03-01T09:00:00"}; null or blank books at any time again
+    @PutMapping("/{id}/on-sale")
+    public ResponseEntity<?> setOnSale(@PathVariable Long id, @RequestBody Map<String, String> body) {
+        try {
+            String value = body.get("onSaleAt");
+            LocalDateTime onSaleAt = value == null || value.isBlank() ? null : LocalDateTime.parse(value);
+            eventService.setOnSaleAt(id, onSaleAt);
+            waitingRoom.refreshSchedule();
+            return ResponseEntity.ok(Map.of("onSaleAt", onSaleAt != null ? onSaleAt.toString() : ""));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid onSaleAt"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}/stalls/{stallId}/block")
     public ResponseEntity<?> toggleBlockStall(@PathVariable Long id, @PathVariable Long stallId,
                                               @RequestBody Map<String, Boolean> body) {
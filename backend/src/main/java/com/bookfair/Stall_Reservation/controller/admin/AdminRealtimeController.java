@@ -0,0 +1,38 @@
+package com.bookfair.Stall_Reservation.controller.admin;
+
+import com.bookfair.Stall_Reservation.realtime.ClusterBus;
+import com.bookfair.Stall_Reservation.realtime.StallAvailabilityPublisher;
+import com.bookfair.Stall_Reservation.realtime.StallPresenceTracker;
+import com.bookfair.Stall_Reservation.realtime.SubscriptionRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/realtime")
+public class AdminRealtimeController {
+
+    private final StallAvailabilityPublisher availabilityPublisher;
+    private final ClusterBus clusterBus;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final StallPresenceTracker presenceTracker;
+
+    public AdminRealtimeController(StallAvailabilityPublisher availabilityPublisher, ClusterBus clusterBus,
+                                   SubscriptionRegistry subscriptionRegistry, StallPresenceTracker presenceTracker) {
+        this.availabilityPublisher = availabilityPublisher;
+        this.clusterBus = clusterBus;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.presenceTracker = presenceTracker;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(availabilityPublisher.stats());
+        stats.putAll(clusterBus.stats());
+        stats.putAll(subscriptionRegistry.stats());
+        stats.putAll(presenceTracker.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
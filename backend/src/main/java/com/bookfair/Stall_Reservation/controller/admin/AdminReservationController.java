@@ -0,0 +1,50 @@
+package com.bookfair.Stall_Reservation.controller.admin;
+
+import com.bookfair.Stall_Reservation.booking.AsyncBookingQueue;
+import com.bookfair.Stall_Reservation.booking.BookingEngine;
+import com.bookfair.Stall_Reservation.booking.DoubleBookingGuard;
+import com.bookfair.Stall_Reservation.booking.WaitingRoom;
+import com.bookfair.Stall_Reservation.dto.reservation.BulkTransitionRequest;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reservations")
+public class AdminReservationController {
+
+    private final ReservationService reservationService;
+    private final DoubleBookingGuard doubleBookingGuard;
+    private final AsyncBookingQueue asyncBookingQueue;
+    private final ObjectProvider<BookingEngine> bookingEngine;
+    private final WaitingRoom waitingRoom;
+
+    public AdminReservationController(ReservationService reservationService, DoubleBookingGuard doubleBookingGuard,
+                                      AsyncBookingQueue asyncBookingQueue, ObjectProvider<BookingEngine> bookingEngine,
+                                      WaitingRoom waitingRoom) {
+        this.reservationService = reservationService;
+        this.doubleBookingGuard = doubleBookingGuard;
+        this.asyncBookingQueue = asyncBookingQueue;
+        this.bookingEngine = bookingEngine;
+        this.waitingRoom = waitingRoom;
+    }
+
+    @GetMapping("/booking-stats")
+    public ResponseEntity<Map<String, Object>> bookingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(doubleBookingGuard.stats());
+        bookingEngine.ifAvailable(engine -> stats.putAll(engine.stats()));
+        stats.putAll(asyncBookingQueue.stats());
+        stats.putAll(waitingRoom.stats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<Map<String, Object>> bulk(@Valid @RequestBody BulkTransitionRequest request) {
+        return ResponseEntity.ok(reservationService.bulkTransition(request.getAction(), request.getReservationIds()));
+    }
+}
@@ -2,15 +2,34 @@ package com.bookfair.Stall_Reservation.dto.event;
 
 import org.springframework.context.ApplicationEvent;
 
+import java.util.List;
+
 public class StallBookingEvent extends ApplicationEvent {
     private final Long eventId;
+    // Booked and held stalls are diffed from in-memory state; block changes have to be carried along
+    private final List<Long> blockedStallIds;
+    private final List<Long> unblockedStallIds;
 
     public StallBookingEvent(Object source, Long eventId) {
+        this(source, eventId, List.of(), List.of());
+    }
+
+    public StallBookingEvent(Object source, Long eventId, List<Long> blockedStallIds, List<Long> unblockedStallIds) {
         super(source);
         this.eventId = eventId;
+        this.blockedStallIds = blockedStallIds;
+        this.unblockedStallIds = unblockedStallIds;
     }
 
     public Long getEventId() {
         return eventId;
     }
+
+    public List<Long> getBlockedStallIds() {
+        return blockedStallIds;
+    }
+
+    public List<Long> getUnblockedStallIds() {
+        return unblockedStallIds;
+    }
 }
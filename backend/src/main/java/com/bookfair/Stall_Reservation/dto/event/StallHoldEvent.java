@@ -0,0 +1,55 @@
+package com.bookfair.Stall_Reservation.dto.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/** A vendor's hold on an event was placed or renewed, or released when stallIds is empty. */
+public class StallHoldEvent extends ApplicationEvent {
+    private final Long eventId;
+    private final Long vendorId;
+    private final List<Long> stallIds;
+    private final long placedAtMillis;
+    // When the vendor's first hold in this run was placed; renewals do not move it
+    private final long startedAtMillis;
+    private final long expiresAtMillis;
+
+    public StallHoldEvent(Object source, Long eventId, Long vendorId, List<Long> stallIds,
+                          long placedAtMillis, long startedAtMillis, long expiresAtMillis) {
+        super(source);
+        this.eventId = eventId;
+        this.vendorId = vendorId;
+        this.stallIds = stallIds;
+        this.placedAtMillis = placedAtMillis;
+        this.startedAtMillis = startedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public static StallHoldEvent released(Object source, Long eventId, Long vendorId) {
+        return new StallHoldEvent(source, eventId, vendorId, List.of(), 0, 0, 0);
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public Long getVendorId() {
+        return vendorId;
+    }
+
+    public List<Long> getStallIds() {
+        return stallIds;
+    }
+
+    public long getPlacedAtMillis() {
+        return placedAtMillis;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bookfair.Stall_Reservation.dto.event;
+
+import java.util.List;
+
+public class StallSelectionMessage {
+    private List<Long> selectedStallIds;
+    // Stall under the pointer, if any
+    private Long viewingStallId;
+
+    public List<Long> getSelectedStallIds() {
+        return selectedStallIds;
+    }
+
+    public void setSelectedStallIds(List<Long> selectedStallIds) {
+        this.selectedStallIds = selectedStallIds;
+    }
+
+    public Long getViewingStallId() {
+        return viewingStallId;
+    }
+
+    public void setViewingStallId(Long viewingStallId) {
+        this.viewingStallId = viewingStallId;
+    }
+}
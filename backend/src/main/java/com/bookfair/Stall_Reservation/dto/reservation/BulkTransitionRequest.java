@@ -0,0 +1,30 @@
+package com.bookfair.Stall_Reservation.dto.reservation;
+
+import com.bookfair.Stall_Reservation.enums.ReservationAction;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+
+public class BulkTransitionRequest {
+    @NotNull(message = "Action is required")
+    private ReservationAction action;
+
+    @NotEmpty(message = "At least one reservation must be selected")
+    private List<Long> reservationIds;
+
+    public ReservationAction getAction() {
+        return action;
+    }
+
+    public void setAction(ReservationAction action) {
+        this.action = action;
+    }
+
+    public List<Long> getReservationIds() {
+        return reservationIds;
+    }
+
+    public void setReservationIds(List<Long> reservationIds) {
+        this.reservationIds = reservationIds;
+    }
+}
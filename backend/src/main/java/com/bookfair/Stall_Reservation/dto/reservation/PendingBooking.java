@@ -0,0 +1,40 @@
+package com.bookfair.Stall_Reservation.dto.reservation;
+
+import com.bookfair.Stall_Reservation.entity.Reservation;
+
+// One booking in a group written together; ends up with either a reservation or the reason it was refused
+public class PendingBooking {
+    private final CreateBookingRequest request;
+    private final Long vendorId;
+    private Reservation reservation;
+    private RuntimeException error;
+
+    public PendingBooking(CreateBookingRequest request, Long vendorId) {
+        this.request = request;
+        this.vendorId = vendorId;
+    }
+
+    public CreateBookingRequest getRequest() {
+        return request;
+    }
+
+    public Long getVendorId() {
+        return vendorId;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public void setReservation(Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public void setError(RuntimeException error) {
+        this.error = error;
+    }
+}
@@ -30,6 +30,9 @@ public class Event {
     /** Days before event when cancellation is no longer allowed. */
     private int cancellationDays = 7;
 
+    /** When booking opens; arrivals around it go through the waiting room. Null books at any time. */
+    private LocalDateTime onSaleAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by_admin_id")
     private User createdBy;
@@ -113,6 +116,14 @@ public class Event {
         this.cancellationDays = cancellationDays;
     }
 
+    public LocalDateTime getOnSaleAt() {
+        return onSaleAt;
+    }
+
+    public void setOnSaleAt(LocalDateTime onSaleAt) {
+        this.onSaleAt = onSaleAt;
+    }
+
     public User getCreatedBy() {
         return createdBy;
     }
@@ -9,7 +9,8 @@ import java.util.Objects;
 public class ReservationGenre {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_genres_seq")
+    @SequenceGenerator(name = "reservation_genres_seq", sequenceName = "reservation_genres_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 @Table(name = "reservation_logs")
 public class ReservationLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_logs_seq")
+    @SequenceGenerator(name = "reservation_logs_seq", sequenceName = "reservation_logs_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
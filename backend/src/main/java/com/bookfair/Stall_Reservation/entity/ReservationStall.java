@@ -10,7 +10,8 @@ import java.util.Objects;
 public class ReservationStall {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_stalls_seq")
+    @SequenceGenerator(name = "reservation_stalls_seq", sequenceName = "reservation_stalls_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -10,7 +10,8 @@ import java.math.BigDecimal;
 public class Stall {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stalls_seq")
+    @SequenceGenerator(name = "stalls_seq", sequenceName = "stalls_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,57 @@
+package com.bookfair.Stall_Reservation.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * One row per stall held by an active reservation. The primary key on the stall id is what keeps
+ * two concurrent bookings from both taking it.
+ */
+@Entity
+@Table(name = "stall_claims", indexes = {
+        @Index(columnList = "reservation_id")
+})
+public class StallClaim implements Persistable<Long> {
+
+    @Id
+    @Column(name = "stall_id")
+    private Long stallId;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    protected StallClaim() {
+    }
+
+    public StallClaim(Long stallId, Long eventId, Long reservationId) {
+        this.stallId = stallId;
+        this.eventId = eventId;
+        this.reservationId = reservationId;
+    }
+
+    @Override
+    public Long getId() {
+        return stallId;
+    }
+
+    // Claims are only ever inserted or deleted, so save() never needs to look for an existing row
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    public Long getStallId() {
+        return stallId;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+}
@@ -32,6 +32,10 @@ public class User {
 
     private boolean active = true;
 
+    // Bumped to invalidate every token issued before (password change, deactivation)
+    @Column(nullable = false)
+    private int tokenVersion;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -112,6 +116,14 @@ public class User {
         this.active = active;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
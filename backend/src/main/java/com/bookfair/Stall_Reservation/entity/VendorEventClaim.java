@@ -0,0 +1,53 @@
+package com.bookfair.Stall_Reservation.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/** One row per active reservation; unique per vendor and event, so a vendor cannot hold two at once. */
+@Entity
+@Table(name = "vendor_event_claims", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "vendor_id", "event_id" })
+})
+public class VendorEventClaim implements Persistable<Long> {
+
+    @Id
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @Column(name = "vendor_id", nullable = false)
+    private Long vendorId;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    protected VendorEventClaim() {
+    }
+
+    public VendorEventClaim(Long reservationId, Long vendorId, Long eventId) {
+        this.reservationId = reservationId;
+        this.vendorId = vendorId;
+        this.eventId = eventId;
+    }
+
+    @Override
+    public Long getId() {
+        return reservationId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public Long getVendorId() {
+        return vendorId;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bookfair.Stall_Reservation.enums;
+
+public enum EmailType {
+    BOOKING_CONFIRMATION,
+    PAYMENT_CONFIRMATION,
+    CANCELLATION_NOTICE,
+    REFUND_NOTICE,
+    EVENT_REMOVED_NOTICE,
+    CANCELLATION_DEADLINE_REMINDER,
+    EVENT_REMINDER,
+    VENDOR_CANCELLATION_SUCCESS,
+    ACCOUNT_DEACTIVATED_NOTICE
+}
@@ -0,0 +1,7 @@
+package com.bookfair.Stall_Reservation.enums;
+
+public enum OutboxStatus {
+    PENDING, // waiting for (re)delivery
+    SENT,
+    DEAD // retries exhausted, needs an admin re-drive
+}
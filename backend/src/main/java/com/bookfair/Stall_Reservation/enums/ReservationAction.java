@@ -0,0 +1,7 @@
+package com.bookfair.Stall_Reservation.enums;
+
+public enum ReservationAction {
+    APPROVE,
+    REJECT,
+    REFUND
+}
@@ -0,0 +1,16 @@
+package com.bookfair.Stall_Reservation.exception;
+
+public class AdmissionRequiredException extends RuntimeException {
+
+    private final Long eventId;
+
+    public AdmissionRequiredException(String message, Long eventId) {
+        // Every vendor who skips the waiting room gets one during an on-sale rush
+        super(message, null, false, false);
+        this.eventId = eventId;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+}
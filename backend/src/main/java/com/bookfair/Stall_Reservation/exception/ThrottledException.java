@@ -0,0 +1,16 @@
+package com.bookfair.Stall_Reservation.exception;
+
+public class ThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ThrottledException(String message, long retryAfterSeconds) {
+        // Thrown at high rates under load; the stack trace is never used
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
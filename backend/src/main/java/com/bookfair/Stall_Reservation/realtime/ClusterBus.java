@@ -0,0 +1,306 @@
+package com.bookfair.Stall_Reservation.realtime;
+
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.config.JwtProperties;
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
+import com.bookfair.Stall_Reservation.dto.event.StallHoldEvent;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
+import com.bookfair.Stall_Reservation.security.TokenRevokedEvent;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inter-node channel over the relay broker. Each node announces its committed stall changes on
+ * {@code app.realtime.cluster-destination}; the others drop their in-memory occupancy state for
+ * that event and replay the change locally, which reloads their snapshot and catalog caches and
+ * lets any node streaming the event send the delta to its subscribers. Token revocations and stall
+ * holds travel the same way. Inactive in simple broker mode.
+ * <p>
+ * The destination is outside what browser sessions are relayed to, and every message is signed
+ * with HMAC-SHA256 under the cluster secret; unsigned, forged or stale messages are ignored.
+ */
+@Component
+public class ClusterBus implements SmartLifecycle {
+
+    private static final long RECONNECT_DELAY_SECONDS = 5;
+    private static final String HMAC = "HmacSHA256";
+    // Messages older than this are dropped, so a captured one cannot be replayed much later
+    private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final AppProperties.Realtime config;
+    private final StallOccupancyIndex occupancyIndex;
+    private final TokenRevocations tokenRevocations;
+    private final StallHoldService stallHoldService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec signingKey;
+    // Identifies this process in cluster messages and in the sequence numbers it streams
+    private final String origin = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong unsent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ReactorNettyTcpStompClient client;
+    private ScheduledExecutorService reconnector;
+    private volatile StompSession session;
+    private volatile boolean running;
+
+    public ClusterBus(AppProperties appProperties, JwtProperties jwtProperties, StallOccupancyIndex occupancyIndex,
+                      TokenRevocations tokenRevocations, StallHoldService stallHoldService,
+                      ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.config = appProperties.getRealtime();
+        this.occupancyIndex = occupancyIndex;
+        this.tokenRevocations = tokenRevocations;
+        this.stallHoldService = stallHoldService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        String secret = config.getClusterSecret() != null && !config.getClusterSecret().isBlank()
+                ? config.getClusterSecret() : jwtProperties.getSecret();
+        this.signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!config.isRelay())
+            return;
+        client = new ReactorNettyTcpStompClient(config.getRelayHost(), config.getRelayPort());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-bus-reconnect");
+            t.setDaemon(true);
+            return t;
+        });
+        connect();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (reconnector != null)
+            reconnector.shutdownNow();
+        StompSession current = session;
+        if (current != null && current.isConnected())
+            current.disconnect();
+        if (client != null)
+            client.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStallBooking(StallBookingEvent event) {
+        // A change replayed from another node has already been announced by it. Holds are sent as
+        // themselves and expire on every node, so they need no occupancy reload elsewhere
+        if (event.getSource() == this || event.getSource() instanceof StallHoldService)
+            return;
+        announce(Map.of("origin", origin, "eventId", event.getEventId(),
+                "blocked", event.getBlockedStallIds(), "unblocked", event.getUnblockedStallIds()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        announce(Map.of("origin", origin, "userId", event.getUserId(), "tokenVersion", event.getTokenVersion()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStallHold(StallHoldEvent event) {
+        announce(Map.of("origin", origin, "eventId", event.getEventId(), "vendorId", event.getVendorId(),
+                "stallIds", event.getStallIds(), "placedAt", event.getPlacedAtMillis(),
+                "startedAt", event.getStartedAtMillis(), "expiresAt", event.getExpiresAtMillis()));
+    }
+
+    private void announce(Map<String, Object> message) {
+        if (!config.isRelay())
+            return;
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            // Other nodes catch up when their cached state is next reloaded
+            unsent.incrementAndGet();
+            return;
+        }
+        try {
+            Map<String, Object> stamped = new HashMap<>(message);
+            stamped.put("at", System.currentTimeMillis());
+            String payload = objectMapper.writeValueAsString(stamped);
+            current.send(config.getClusterDestination(), Map.of("payload", payload, "sig", sign(payload)));
+            sent.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            unsent.incrementAndGet();
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(signingKey);
+            return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    // The signed payload, or null when the frame was not signed by a node sharing the secret or is too old
+    private Map<?, ?> verify(Map<?, ?> frame) {
+        if (!(frame.get("payload") instanceof String payload) || !(frame.get("sig") instanceof String sig))
+            return null;
+        byte[] expected = sign(payload).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, sig.getBytes(StandardCharsets.UTF_8)))
+            return null;
+        try {
+            Map<?, ?> message = objectMapper.readValue(payload, Map.class);
+            if (!(message.get("at") instanceof Number at)
+                    || Math.abs(System.currentTimeMillis() - at.longValue()) > MAX_AGE_MS)
+                return null;
+            return message;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("brokerMode", config.getBrokerMode());
+        result.put("origin", origin);
+        StompSession current = session;
+        result.put("clusterConnected", current != null && current.isConnected());
+        result.put("clusterSent", sent.get());
+        result.put("clusterReceived", received.get());
+        result.put("clusterUnsent", unsent.get());
+        result.put("clusterRejected", rejected.get());
+        return result;
+    }
+
+    private void connect() {
+        if (!running)
+            return;
+        StompHeaders headers = new StompHeaders();
+        headers.setLogin(config.getRelayLogin());
+        headers.setPasscode(config.getRelayPasscode());
+        if (config.getRelayVirtualHost() != null)
+            headers.setHost(config.getRelayVirtualHost());
+        client.connectAsync(headers, new Handler()).exceptionally(e -> {
+            scheduleReconnect();
+            return null;
+        });
+    }
+
+    private void scheduleReconnect() {
+        session = null;
+        if (running && !reconnector.isShutdown())
+            reconnector.schedule(this::connect, RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void onRemoteChange(Map<?, ?> frame) {
+        Map<?, ?> message = verify(frame);
+        if (message == null) {
+            rejected.incrementAndGet();
+            return;
+        }
+        if (origin.equals(message.get("origin")))
+            return;
+        if (message.get("userId") instanceof Number userId && message.get("tokenVersion") instanceof Number version) {
+            received.incrementAndGet();
+            tokenRevocations.apply(userId.longValue(), version.intValue());
+            return;
+        }
+        if (!(message.get("eventId") instanceof Number n))
+            return;
+        if (message.get("vendorId") instanceof Number vendorId) {
+            received.incrementAndGet();
+            StallHoldEvent hold = new StallHoldEvent(this, n.longValue(), vendorId.longValue(),
+                    ids(message.get("stallIds")), millis(message.get("placedAt")), millis(message.get("startedAt")),
+                    millis(message.get("expiresAt")));
+            if (stallHoldService.applyRemote(hold))
+                eventPublisher.publishEvent(new StallBookingEvent(this, hold.getEventId()));
+            return;
+        }
+        received.incrementAndGet();
+        Long eventId = n.longValue();
+        // Evicted first, so that the delta computed for the replayed change reads the committed state
+        occupancyIndex.evict(eventId);
+        eventPublisher.publishEvent(new StallBookingEvent(this, eventId,
+                ids(message.get("blocked")), ids(message.get("unblocked"))));
+    }
+
+    private static long millis(Object value) {
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    private static List<Long> ids(Object value) {
+        if (!(value instanceof List<?> list))
+            return List.of();
+        return list.stream().filter(Number.class::isInstance).map(id -> ((Number) id).longValue()).toList();
+    }
+
+    private final class Handler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession newSession, StompHeaders connectedHeaders) {
+            session = newSession;
+            newSession.subscribe(config.getClusterDestination(), this);
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            if (payload instanceof Map<?, ?> message)
+                onRemoteChange(message);
+        }
+
+        @Override
+        public void handleException(StompSession s, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            // A malformed frame from the broker; ignore it and keep the session
+        }
+
+        @Override
+        public void handleTransportError(StompSession s, Throwable exception) {
+            if (!s.isConnected())
+                scheduleReconnect();
+        }
+    }
+}
@@ -1,33 +1,350 @@
 package com.bookfair.Stall_Reservation.realtime;
 
-import com.bookfair.Stall_Reservation.repository.ReservationStallRepository;
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
+import com.bookfair.Stall_Reservation.config.AppProperties;
 import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
-import org.springframework.context.event.EventListener;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import jakarta.annotation.PreDestroy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Streams stall changes to /topic/stalls/{eventId} as numbered deltas. Each message carries the
+ * event's next sequence number and only the stalls that changed; a client that sees a gap in the
+ * sequence fetches {@link #snapshot(Long)} and continues from there. Sequence numbers are per
+ * node ("origin"), since with a relay broker every node streams onto the same topic.
+ * <p>
+ * Changes to one event are coalesced for {@code app.realtime.coalesce-window-ms}: however many
+ * bookings land in the window, it produces one delta and one admin notification. Nothing here
+ * runs on the committing request thread beyond recording the change: windows are timed on
+ * "stall-broadcast" and sent from a small bounded pool. When that pool is saturated a window is
+ * deferred, and after too many deferrals dropped with a sequence gap so that clients resync.
+ */
 @Component
 public class StallAvailabilityPublisher {
 
-    private final ReservationStallRepository reservationStallRepository;
+    private static final String ADMIN_TOPIC = "/topic/admin/updates";
+
+    private final StallOccupancyIndex occupancyIndex;
+    private final StallHoldService stallHoldService;
+    private final StallRepository stallRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterBus clusterBus;
+    private final SubscriptionRegistry subscriptions;
+    private final boolean relay;
+    private final long windowMs;
+    private final int maxDeferrals;
+
+    // Changes waiting for their event's window to close
+    private final ConcurrentHashMap<Long, PendingChanges> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stall-broadcast");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ThreadPoolExecutor senders;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong stallMessages = new AtomicLong();
+    private final AtomicLong adminMessages = new AtomicLong();
+    private final AtomicLong unchangedWindows = new AtomicLong();
+    private final AtomicLong failedWindows = new AtomicLong();
+    private final AtomicLong deferredWindows = new AtomicLong();
+    private final AtomicLong droppedWindows = new AtomicLong();
+    private final AtomicLong skippedNoSubscribers = new AtomicLong();
+    private final AtomicLong sendCount = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+    private final AtomicLong maxSendNanos = new AtomicLong();
 
-    public StallAvailabilityPublisher(ReservationStallRepository reservationStallRepository,
-                                      SimpMessagingTemplate messagingTemplate) {
-        this.reservationStallRepository = reservationStallRepository;
+    // Last state streamed per event; deltas are computed against it under its lock
+    private final ConcurrentHashMap<Long, StreamState> streams = new ConcurrentHashMap<>();
+
+    public StallAvailabilityPublisher(StallOccupancyIndex occupancyIndex, StallHoldService stallHoldService,
+                                      StallRepository stallRepository, SimpMessagingTemplate messagingTemplate,
+                                      ClusterBus clusterBus, SubscriptionRegistry subscriptions,
+                                      AppProperties appProperties) {
+        this.occupancyIndex = occupancyIndex;
+        this.stallHoldService = stallHoldService;
+        this.stallRepository = stallRepository;
         this.messagingTemplate = messagingTemplate;
+        this.clusterBus = clusterBus;
+        this.subscriptions = subscriptions;
+        AppProperties.Realtime cfg = appProperties.getRealtime();
+        this.relay = cfg.isRelay();
+        this.windowMs = cfg.getCoalesceWindowMs();
+        this.maxDeferrals = cfg.getMaxDeferrals();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(cfg.getPublisherThreads(), cfg.getPublisherThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cfg.getPublishQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "stall-publisher-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdown();
+        senders.shutdown();
     }
 
-    @EventListener
+    // After commit, so the occupancy index already reflects the change being announced
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void onStallBooking(StallBookingEvent event) {
-        var bookedIds = reservationStallRepository.findBookedStallIdsByEventId(event.getEventId());
-        messagingTemplate.convertAndSend("/topic/stalls/" + event.getEventId(), Map.of("bookedStallIds", bookedIds));
+        received.incrementAndGet();
+        Long eventId = event.getEventId();
+        boolean[] opened = new boolean[1];
+        pending.compute(eventId, (id, changes) -> {
+            if (changes == null) {
+                changes = new PendingChanges();
+                opened[0] = true;
+            }
+            changes.add(event);
+            return changes;
+        });
+        if (opened[0]) {
+            scheduleDispatch(eventId, 0);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
 
-        // Notify admin of event
-        messagingTemplate.convertAndSend("/topic/admin/updates",
-                Map.of("type", "BOOKING_UPDATE", "eventId", event.getEventId()));
+    private void scheduleDispatch(Long eventId, int deferrals) {
+        try {
+            timer.schedule(() -> dispatch(eventId, deferrals), windowMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            pending.remove(eventId);
+        }
     }
-}
 
+    // Window closed: hand it to a sender. The changes stay pending (and keep merging) until one takes it
+    private void dispatch(Long eventId, int deferrals) {
+        try {
+            senders.execute(() -> flush(eventId));
+        } catch (RejectedExecutionException e) {
+            if (deferrals < maxDeferrals) {
+                deferredWindows.incrementAndGet();
+                scheduleDispatch(eventId, deferrals + 1);
+            } else {
+                drop(eventId);
+            }
+        }
+    }
+
+    private void drop(Long eventId) {
+        pending.remove(eventId);
+        droppedWindows.incrementAndGet();
+        StreamState state = streams.get(eventId);
+        if (state != null) {
+            synchronized (state) {
+                // Skip a number without sending it: subscribers see the gap on the next delta and
+                // resync, and that delta is still computed against what was last actually sent
+                state.seq++;
+            }
+        }
+    }
+
+    private void flush(Long eventId) {
+        PendingChanges changes = pending.remove(eventId);
+        if (changes == null)
+            return;
+        try {
+            StreamState state = streams.get(eventId);
+            // Without a stream state no client has asked this node for a snapshot yet, so there is nobody to send
+            // a delta to; with a relay broker, the nodes that did serve one get the change over the cluster bus and
+            // send it. Unwatched floor plans are skipped too: a new subscriber's snapshot brings the stream up to date
+            if (state != null && listenedTo("/topic/stalls/" + eventId))
+                sendDelta(eventId, state, changes);
+
+            // Notify admin of event
+            if (listenedTo(ADMIN_TOPIC)) {
+                send(ADMIN_TOPIC, Map.of("type", "BOOKING_UPDATE", "eventId", eventId));
+                adminMessages.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            // Keep the sender alive; clients recover from a missed delta through the sequence gap
+            failedWindows.incrementAndGet();
+        }
+    }
+
+    private void sendDelta(Long eventId, StreamState state, PendingChanges changes) {
+        synchronized (state) {
+            if (!emit(eventId, state, changes.withBlock(true), changes.withBlock(false)))
+                unchangedWindows.incrementAndGet();
+        }
+    }
+
+    // Caller holds the state's lock. Streams whatever differs from the last streamed state, if anything
+    private boolean emit(Long eventId, StreamState state, List<Long> blocked, List<Long> unblocked) {
+        Set<Long> booked = new HashSet<>(occupancyIndex.getBookedStallIds(eventId));
+        Set<Long> held = new HashSet<>(stallHoldService.getHeldStallIds(eventId));
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        putIfNotEmpty(delta, "booked", added(state.booked, booked));
+        putIfNotEmpty(delta, "freed", added(booked, state.booked));
+        putIfNotEmpty(delta, "held", added(state.held, held));
+        putIfNotEmpty(delta, "released", added(held, state.held));
+        putIfNotEmpty(delta, "blocked", blocked);
+        putIfNotEmpty(delta, "unblocked", unblocked);
+        if (delta.isEmpty())
+            return false;
+
+        state.seq++;
+        state.booked = booked;
+        state.held = held;
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("eventId", eventId);
+        message.put("origin", clusterBus.getOrigin());
+        message.put("seq", state.seq);
+        message.putAll(delta);
+        // Sent under the lock so subscribers see sequence numbers in order
+        send("/topic/stalls/" + eventId, message);
+        stallMessages.incrementAndGet();
+        return true;
+    }
+
+    // With a relay broker the subscribers may be connected to other nodes, so always send
+    private boolean listenedTo(String destination) {
+        if (relay || subscriptions.hasSubscribers(destination))
+            return true;
+        skippedNoSubscribers.incrementAndGet();
+        return false;
+    }
+
+    private void send(String destination, Object payload) {
+        long start = System.nanoTime();
+        messagingTemplate.convertAndSend(destination, payload);
+        long elapsed = System.nanoTime() - start;
+        sendCount.incrementAndGet();
+        sendNanos.addAndGet(elapsed);
+        maxSendNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /** Counters for tuning the coalescing window. */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("coalesceWindowMs", windowMs);
+        result.put("eventsReceived", received.get());
+        result.put("eventsCoalesced", coalesced.get());
+        result.put("stallMessagesSent", stallMessages.get());
+        result.put("adminMessagesSent", adminMessages.get());
+        result.put("unchangedWindows", unchangedWindows.get());
+        result.put("failedWindows", failedWindows.get());
+        result.put("deferredWindows", deferredWindows.get());
+        result.put("droppedWindows", droppedWindows.get());
+        result.put("publishQueueDepth", senders.getQueue().size());
+        result.put("activePublishers", senders.getActiveCount());
+        result.put("pendingEvents", pending.size());
+        result.put("skippedNoSubscribers", skippedNoSubscribers.get());
+        long sends = sendCount.get();
+        result.put("avgSendMicros", sends == 0 ? 0 : sendNanos.get() / sends / 1000);
+        result.put("maxSendMicros", maxSendNanos.get() / 1000);
+        return result;
+    }
+
+    /**
+     * Full state of the event's floor plan and the sequence number it corresponds to. Deltas with a
+     * higher sequence number apply on top of it. Null if there is no such event.
+     */
+    public Map<String, Object> snapshot(Long eventId) {
+        StreamState state = streams.get(eventId);
+        if (state == null) {
+            // Only events get a stream, so unknown ids leave nothing behind
+            if (!occupancyIndex.exists(eventId))
+                return null;
+            state = streams.computeIfAbsent(eventId, id -> new StreamState(
+                    new HashSet<>(occupancyIndex.getBookedStallIds(id)),
+                    new HashSet<>(stallHoldService.getHeldStallIds(id))));
+        }
+        long seq;
+        List<Long> booked;
+        List<Long> held;
+        synchronized (state) {
+            // Bring the stream up to date first, so the snapshot is exactly the state at its sequence
+            // number and later deltas are computed against it
+            emit(eventId, state, List.of(), List.of());
+            seq = state.seq;
+            booked = new ArrayList<>(state.booked);
+            held = new ArrayList<>(state.held);
+        }
+        // Read after the sequence is taken: a block committed in between shows up here and is
+        // replayed by its delta, which is harmless because block deltas are absolute
+        List<Long> blocked = stallRepository.findBlockedIdsByEventId(eventId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("eventId", eventId);
+        result.put("origin", clusterBus.getOrigin());
+        result.put("seq", seq);
+        result.put("bookedStallIds", booked);
+        result.put("heldStallIds", held);
+        result.put("blockedStallIds", blocked);
+        return result;
+    }
+
+    private static List<Long> added(Set<Long> before, Set<Long> after) {
+        List<Long> result = new ArrayList<>();
+        for (Long id : after) {
+            if (!before.contains(id))
+                result.add(id);
+        }
+        return result;
+    }
+
+    private static void putIfNotEmpty(Map<String, Object> message, String key, Collection<Long> ids) {
+        if (!ids.isEmpty())
+            message.put(key, ids);
+    }
+
+    // Block toggles seen during one window, last one per stall wins
+    private static final class PendingChanges {
+        private final Map<Long, Boolean> blocks = new LinkedHashMap<>();
+
+        void add(StallBookingEvent event) {
+            event.getBlockedStallIds().forEach(id -> blocks.put(id, true));
+            event.getUnblockedStallIds().forEach(id -> blocks.put(id, false));
+        }
+
+        List<Long> withBlock(boolean blocked) {
+            List<Long> result = new ArrayList<>();
+            blocks.forEach((id, b) -> {
+                if (b == blocked)
+                    result.add(id);
+            });
+            return result;
+        }
+    }
+
+    private static final class StreamState {
+        long seq;
+        Set<Long> booked;
+        Set<Long> held;
+
+        StreamState(Set<Long> booked, Set<Long> held) {
+            this.booked = booked;
+            this.held = held;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.bookfair.Stall_Reservation.realtime;
+
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Which stalls other vendors are looking at or have selected, per WebSocket session and kept only
+ * in memory. Sessions re-announce themselves periodically; one that stops doing so is forgotten
+ * after the TTL. Changed events are broadcast on {@code /topic/presence/{eventId}} at most once
+ * per interval.
+ * <p>
+ * Counts are per node: in relay mode each node broadcasts its own, tagged with its origin, and
+ * clients add them up.
+ */
+@Component
+public class StallPresenceTracker {
+
+    private record Presence(Long eventId, long[] selected, long viewing, long expiresAt) {
+
+        boolean sameAs(Presence other) {
+            return other != null && eventId.equals(other.eventId) && viewing == other.viewing
+                    && Arrays.equals(selected, other.selected);
+        }
+    }
+
+    private static final class StallCounters {
+        final AtomicInteger viewing = new AtomicInteger();
+        final AtomicInteger selecting = new AtomicInteger();
+    }
+
+    private static final class EventPresence {
+        final AtomicInteger viewers = new AtomicInteger();
+        final ConcurrentHashMap<Long, StallCounters> stalls = new ConcurrentHashMap<>();
+    }
+
+    private final StallOccupancyIndex occupancyIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SubscriptionRegistry subscriptions;
+    private final ClusterBus clusterBus;
+    private final boolean relay;
+    private final long ttlMillis;
+    private final int maxSelected;
+
+    private final ConcurrentHashMap<String, Presence> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, EventPresence> events = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong broadcasts = new AtomicLong();
+
+    public StallPresenceTracker(StallOccupancyIndex occupancyIndex, SimpMessagingTemplate messagingTemplate,
+                                SubscriptionRegistry subscriptions, ClusterBus clusterBus, AppProperties appProperties) {
+        this.occupancyIndex = occupancyIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptions = subscriptions;
+        this.clusterBus = clusterBus;
+        this.relay = appProperties.getRealtime().isRelay();
+        this.ttlMillis = appProperties.getRealtime().getPresenceTtlSeconds() * 1000L;
+        this.maxSelected = appProperties.getBooking().getMaxStallsPerBooking();
+    }
+
+    /** Replaces what the session is looking at; stall ids that are not part of the event are ignored. */
+    public void update(String sessionId, Long eventId, Collection<Long> selectedStallIds, Long viewingStallId) {
+        if (occupancyIndex.countStalls(eventId) == 0) {
+            leave(sessionId);
+            return;
+        }
+        long[] selected = selectedStallIds == null ? new long[0] : selectedStallIds.stream()
+                .filter(id -> occupancyIndex.hasStall(eventId, id))
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .limit(maxSelected)
+                .toArray();
+        long viewing = occupancyIndex.hasStall(eventId, viewingStallId) ? viewingStallId : 0;
+        Presence next = new Presence(eventId, selected, viewing, System.currentTimeMillis() + ttlMillis);
+
+        // compute() orders updates from the same session; the counters themselves are lock-free
+        sessions.compute(sessionId, (id, previous) -> {
+            if (next.sameAs(previous)) {
+                refreshes.incrementAndGet();
+            } else {
+                updates.incrementAndGet();
+                apply(previous, -1);
+                apply(next, 1);
+            }
+            return next;
+        });
+    }
+
+    public void leave(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, previous) -> {
+            apply(previous, -1);
+            return null;
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        leave(event.getSessionId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.realtime.presence-interval-ms:1000}")
+    public void broadcast() {
+        for (Long eventId : dirty) {
+            dirty.remove(eventId);
+            EventPresence presence = events.get(eventId);
+            String destination = "/topic/presence/" + eventId;
+            if (presence == null || !(relay || subscriptions.hasSubscribers(destination)))
+                continue;
+            Map<Long, int[]> stalls = new TreeMap<>();
+            presence.stalls.forEach((stallId, counters) -> {
+                int viewing = counters.viewing.get();
+                int selecting = counters.selecting.get();
+                if (viewing > 0 || selecting > 0)
+                    stalls.put(stallId, new int[]{viewing, selecting});
+            });
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("eventId", eventId);
+            message.put("origin", clusterBus.getOrigin());
+            message.put("viewers", presence.viewers.get());
+            message.put("stalls", stalls);
+            messagingTemplate.convertAndSend(destination, message);
+            broadcasts.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.realtime.presence-sweep-ms:5000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Presence> entry : sessions.entrySet()) {
+            if (entry.getValue().expiresAt() > now)
+                continue;
+            sessions.computeIfPresent(entry.getKey(), (id, current) -> {
+                if (current.expiresAt() > now)
+                    return current;
+                expired.incrementAndGet();
+                apply(current, -1);
+                return null;
+            });
+        }
+        // Re-announce what is still there, so other nodes' clients can tell this one is alive
+        if (relay)
+            events.forEach((eventId, presence) -> {
+                if (presence.viewers.get() > 0)
+                    dirty.add(eventId);
+            });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("presenceSessions", sessions.size());
+        result.put("presenceUpdates", updates.get());
+        result.put("presenceRefreshes", refreshes.get());
+        result.put("presenceExpired", expired.get());
+        result.put("presenceBroadcasts", broadcasts.get());
+        return result;
+    }
+
+    // Counter entries are never removed, so an increment cannot land on a discarded one; they are
+    // bounded by the event's stalls
+    private void apply(Presence presence, int delta) {
+        if (presence == null)
+            return;
+        EventPresence event = events.computeIfAbsent(presence.eventId(), id -> new EventPresence());
+        event.viewers.addAndGet(delta);
+        for (long stallId : presence.selected())
+            counters(event, stallId).selecting.addAndGet(delta);
+        if (presence.viewing() != 0)
+            counters(event, presence.viewing()).viewing.addAndGet(delta);
+        dirty.add(presence.eventId());
+    }
+
+    private static StallCounters counters(EventPresence event, long stallId) {
+        StallCounters counters = event.stalls.get(stallId);
+        return counters != null ? counters : event.stalls.computeIfAbsent(stallId, id -> new StallCounters());
+    }
+}
@@ -0,0 +1,113 @@
+package com.bookfair.Stall_Reservation.realtime;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live STOMP subscriptions on this node, kept from the session lifecycle events so that publishers
+ * can skip destinations nobody is listening to.
+ */
+@Component
+public class SubscriptionRegistry {
+
+    // sessionId -> subscriptionId -> destination
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> subscribers = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskExecutor inboundExecutor;
+    private final ThreadPoolTaskExecutor outboundExecutor;
+    private final WebSocketHandler webSocketHandler;
+
+    public SubscriptionRegistry(@Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inboundExecutor,
+                                @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outboundExecutor,
+                                @Qualifier("subProtocolWebSocketHandler") WebSocketHandler webSocketHandler) {
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.webSocketHandler = webSocketHandler;
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return subscribers.containsKey(destination);
+    }
+
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    public Map<String, Integer> subscriptionsByDestination() {
+        return new TreeMap<>(subscribers);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("activeSessions", activeSessions());
+        result.put("subscriptions", subscriptionsByDestination());
+        // Frames waiting to be written to client sessions
+        result.put("outboundQueueDepth", outboundExecutor.getQueueSize());
+        result.put("outboundActiveThreads", outboundExecutor.getActiveCount());
+        result.put("inboundQueueDepth", inboundExecutor.getQueueSize());
+        if (webSocketHandler instanceof SubProtocolWebSocketHandler handler) {
+            var sessions = handler.getStats();
+            result.put("webSocketSessions", sessions.getWebSocketSessions());
+            result.put("sockJsSessions", sessions.getHttpStreamingSessions() + sessions.getHttpPollingSessions());
+            // Closed because a single send stayed blocked past the send time limit
+            result.put("limitExceededSessions", sessions.getLimitExceededSessions());
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null)
+            sessions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || accessor.getSubscriptionId() == null || destination == null)
+            return;
+        var subscriptions = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>());
+        if (subscriptions.put(accessor.getSubscriptionId(), destination) == null)
+            subscribers.merge(destination, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        var subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null)
+            return;
+        String destination = subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null)
+            release(destination);
+    }
+
+    // Can be published more than once for a session; only the first one finds it
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        var subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null)
+            subscriptions.values().forEach(this::release);
+    }
+
+    private void release(String destination) {
+        subscribers.computeIfPresent(destination, (d, count) -> count > 1 ? count - 1 : null);
+    }
+}
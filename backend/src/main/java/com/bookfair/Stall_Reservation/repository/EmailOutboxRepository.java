@@ -0,0 +1,25 @@
+package com.bookfair.Stall_Reservation.repository;
+
+import com.bookfair.Stall_Reservation.entity.EmailOutbox;
+import com.bookfair.Stall_Reservation.enums.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    List<EmailOutbox> findTop100ByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(OutboxStatus status,
+                                                                                          LocalDateTime now);
+
+    List<EmailOutbox> findByStatusOrderByCreatedAtDesc(OutboxStatus status);
+
+    // Take a delivery lease; only the worker that gets 1 back may send the message
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox m SET m.nextAttemptAt = :leaseUntil WHERE m.id = :id AND m.status = 'PENDING' AND m.nextAttemptAt <= :now")
+    int claim(Long id, LocalDateTime now, LocalDateTime leaseUntil);
+}
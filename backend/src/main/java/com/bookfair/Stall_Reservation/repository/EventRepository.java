@@ -15,4 +15,8 @@ public interface EventRepository extends JpaRepository<Event, Long> {
     List<Event> findUpcomingEvents(LocalDateTime now);
 
     List<Event> findAllByOrderByEventDateDesc();
+
+    // Events whose on-sale window has not ended yet
+    @Query("SELECT e FROM Event e WHERE e.active = true AND e.onSaleAt IS NOT NULL AND e.onSaleAt > :since")
+    List<Event> findOnSaleSince(LocalDateTime since);
 }
@@ -3,9 +3,13 @@ package com.bookfair.Stall_Reservation.repository;
 import com.bookfair.Stall_Reservation.entity.Payment;
 import com.bookfair.Stall_Reservation.entity.Reservation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -17,4 +21,15 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.status = 'PENDING'")
     BigDecimal totalPending();
+
+    @Query("SELECT p.reservation.id FROM Payment p WHERE p.reservation.id IN :reservationIds")
+    List<Long> findReservationIdsWithPayment(Collection<Long> reservationIds);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = 'COMPLETED', p.paidAt = :now WHERE p.reservation.id IN :reservationIds")
+    int markCompleted(Collection<Long> reservationIds, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = 'REFUNDED', p.refundedAt = :now WHERE p.reservation.id IN :reservationIds")
+    int markRefunded(Collection<Long> reservationIds, LocalDateTime now);
 }
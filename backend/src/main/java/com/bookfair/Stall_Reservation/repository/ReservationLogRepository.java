@@ -0,0 +1,7 @@
+package com.bookfair.Stall_Reservation.repository;
+
+import com.bookfair.Stall_Reservation.entity.ReservationLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReservationLogRepository extends JpaRepository<ReservationLog, Long> {
+}
@@ -5,8 +5,10 @@ import com.bookfair.Stall_Reservation.entity.Reservation;
 import com.bookfair.Stall_Reservation.enums.ReservationStatus;
 import com.bookfair.Stall_Reservation.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -15,6 +17,10 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
 
     Optional<Reservation> findByBookingId(String bookingId);
 
+    // Booking ids of one format are fixed-width, so the greatest is the newest
+    @Query("SELECT MAX(r.bookingId) FROM Reservation r WHERE LENGTH(r.bookingId) = :length")
+    String findMaxBookingIdOfLength(int length);
+
     List<Reservation> findByVendorOrderByBookingDatetimeDesc(User vendor);
 
     List<Reservation> findByEventId(Long eventId);
@@ -22,6 +28,10 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     @Query("SELECT COUNT(r) FROM Reservation r WHERE r.event.id = :eventId AND r.status NOT IN ('CANCELLED', 'REFUNDED', 'EVENT_REMOVED')")
     long countActiveByEventId(Long eventId);
 
+    // Rows of [eventId, active reservation count]
+    @Query("SELECT r.event.id, COUNT(r) FROM Reservation r WHERE r.status NOT IN ('CANCELLED', 'REFUNDED', 'EVENT_REMOVED') GROUP BY r.event.id")
+    List<Object[]> countActiveGroupedByEventId();
+
     List<Reservation> findByStatusIn(List<ReservationStatus> statuses);
 
     List<Reservation> findAllByStatus(ReservationStatus status);
@@ -46,4 +56,16 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
 
     @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.vendor.id = :vendorId AND r.event.id = :eventId AND r.status IN :statuses")
     boolean existsByVendorIdAndEventIdAndStatusIn(Long vendorId, Long eventId, List<ReservationStatus> statuses);
+
+    @Query("SELECT DISTINCT r.vendor.id FROM Reservation r WHERE r.event.id = :eventId AND r.status NOT IN ('CANCELLED', 'REFUNDED', 'EVENT_REMOVED')")
+    List<Long> findActiveVendorIdsByEventId(Long eventId);
+
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.vendor JOIN FETCH r.event WHERE r.id IN :ids")
+    List<Reservation> findAllWithVendorAndEventByIdIn(Collection<Long> ids);
+
+    // Only rows still in one of fromStatuses are moved; the caller compares the count to detect races
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :status, r.updatedAt = :now WHERE r.id IN :ids AND r.status IN :fromStatuses")
+    int transitionStatus(Collection<Long> ids, Collection<ReservationStatus> fromStatuses,
+                         ReservationStatus status, LocalDateTime now);
 }
@@ -6,6 +6,7 @@ import com.bookfair.Stall_Reservation.entity.ReservationStall;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReservationStallRepository extends JpaRepository<ReservationStall, Long> {
@@ -14,4 +15,11 @@ public interface ReservationStallRepository extends JpaRepository<ReservationSta
 
     @Query("SELECT rs.stall.id FROM ReservationStall rs WHERE rs.reservation.event.id = :eventId AND rs.reservation.status NOT IN ('CANCELLED', 'REFUNDED', 'EVENT_REMOVED')")
     List<Long> findBookedStallIdsByEventId(Long eventId);
+
+    @Query("SELECT rs.stall.id FROM ReservationStall rs WHERE rs.stall.id IN :stallIds AND rs.reservation.status NOT IN ('CANCELLED', 'REFUNDED', 'EVENT_REMOVED')")
+    List<Long> findBookedStallIdsIn(Collection<Long> stallIds);
+
+    // Rows of [reservationId, stallId]
+    @Query("SELECT rs.reservation.id, rs.stall.id FROM ReservationStall rs WHERE rs.reservation.id IN :reservationIds")
+    List<Object[]> findStallIdsByReservationIdIn(Collection<Long> reservationIds);
 }
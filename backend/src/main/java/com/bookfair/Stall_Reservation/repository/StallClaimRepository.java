@@ -0,0 +1,19 @@
+package com.bookfair.Stall_Reservation.repository;
+
+import com.bookfair.Stall_Reservation.entity.StallClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+
+public interface StallClaimRepository extends JpaRepository<StallClaim, Long> {
+
+    @Modifying
+    @Query("DELETE FROM StallClaim c WHERE c.reservationId IN :reservationIds")
+    int deleteByReservationIdIn(Collection<Long> reservationIds);
+
+    @Modifying
+    @Query("DELETE FROM StallClaim c WHERE c.eventId = :eventId")
+    int deleteByEventId(Long eventId);
+}
@@ -2,8 +2,12 @@ package com.bookfair.Stall_Reservation.repository;
 
 import com.bookfair.Stall_Reservation.entity.Event;
 import com.bookfair.Stall_Reservation.entity.Stall;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +18,15 @@ public interface StallRepository extends JpaRepository<Stall, Long> {
     Optional<Stall> findByEventIdAndStallCode(Long eventId, String stallCode);
 
     List<Stall> findByEventAndBlockedFalse(Event event);
+
+    @Query("SELECT s.id FROM Stall s WHERE s.event.id = :eventId ORDER BY s.id")
+    List<Long> findIdsByEventId(Long eventId);
+
+    @Query("SELECT s.id FROM Stall s WHERE s.event.id = :eventId AND s.blocked = true ORDER BY s.id")
+    List<Long> findBlockedIdsByEventId(Long eventId);
+
+    // SELECT ... FOR UPDATE in primary key order, so bookings overlapping on stalls lock them in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Stall s WHERE s.id IN :ids ORDER BY s.id")
+    List<Stall> lockAllById(Collection<Long> ids);
 }
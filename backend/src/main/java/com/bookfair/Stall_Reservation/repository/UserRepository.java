@@ -2,8 +2,13 @@ package com.bookfair.Stall_Reservation.repository;
 
 import com.bookfair.Stall_Reservation.entity.User;
 import com.bookfair.Stall_Reservation.enums.UserRole;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,9 +16,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    // SELECT ... FOR UPDATE in primary key order; serializes each vendor's bookings
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id IN :ids ORDER BY u.id")
+    List<User> lockAllById(Collection<Long> ids);
+
     boolean existsByEmail(String email);
 
     List<User> findByRole(UserRole role);
 
     List<User> findByRoleAndActiveTrue(UserRole role);
+
+    // Rows are [userId, tokenVersion, updatedAt]
+    @Query("SELECT u.id, u.tokenVersion, u.updatedAt FROM User u WHERE u.tokenVersion > 0 AND u.updatedAt > :since")
+    List<Object[]> findTokenVersionsChangedSince(LocalDateTime since);
 }
@@ -0,0 +1,19 @@
+package com.bookfair.Stall_Reservation.repository;
+
+import com.bookfair.Stall_Reservation.entity.VendorEventClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+
+public interface VendorEventClaimRepository extends JpaRepository<VendorEventClaim, Long> {
+
+    @Modifying
+    @Query("DELETE FROM VendorEventClaim c WHERE c.reservationId IN :reservationIds")
+    int deleteByReservationIdIn(Collection<Long> reservationIds);
+
+    @Modifying
+    @Query("DELETE FROM VendorEventClaim c WHERE c.eventId = :eventId")
+    int deleteByEventId(Long eventId);
+}
@@ -24,7 +24,7 @@ public class ReservationScheduler {
 
     //Cancellation Deadline Reminder
     @Scheduled(cron = "0 0 9 * * *")
-    @Transactional(readOnly = true)
+    @Transactional
     public void sendCancellationDeadLineReminders() {
         LocalDate tomorrow = LocalDate.now().plusDays(1);
         List<Reservation> reservations = reservationRepository.findAllByStatus(ReservationStatus.SUCCESS);
@@ -38,7 +38,7 @@ public class ReservationScheduler {
 
     // Event Reminder
     @Scheduled(cron = "0 0 10 * * *")
-    @Transactional(readOnly = true)
+    @Transactional
     public void sendEventReminders() {
         LocalDate targetDate = LocalDate.now().plusDays(2);
 
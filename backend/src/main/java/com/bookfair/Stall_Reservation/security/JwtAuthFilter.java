@@ -5,10 +5,13 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -16,50 +19,47 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Collections;
 
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    // permitAll in SecurityConfig and never looking at the caller, so a token would go unused
+    private static final RequestMatcher PUBLIC = new OrRequestMatcher(
+            antMatcher("/uploads/**"),
+            antMatcher("/ws/**"),
+            antMatcher(HttpMethod.GET, "/api/public/**"),
+            antMatcher(HttpMethod.GET, "/api/events/**"),
+            antMatcher(HttpMethod.GET, "/api/payment/config"));
+
     private final JwtUtil jwtUtil;
+    private final TokenRevocations revocations;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
-    public JwtAuthFilter(JwtUtil jwtUtil) {
+    public JwtAuthFilter(JwtUtil jwtUtil, TokenRevocations revocations) {
         this.jwtUtil = jwtUtil;
+        this.revocations = revocations;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC.matches(request);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        try {
-            String token = extractToken(request);
-            if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-                String role = jwtUtil.getRoleFromToken(token).name();
-
-                // Use email as the principal for better Spring Security compatibility
-                // Controllers can still get the ID from the principal if we store it there
-                // But current controllers use (Long) auth.getPrincipal()
-
-                Object userIdObj = jwtUtil.getUserIdFromToken(token);
-                Long userId = null;
-                if (userIdObj instanceof Number) {
-                    userId = ((Number) userIdObj).longValue();
-                } else if (userIdObj instanceof String) {
-                    try {
-                        userId = Long.parseLong((String) userIdObj);
-                    } catch (Exception e) {
-                    }
-                }
-
-                if (userId != null) {
-                    var auth = new UsernamePasswordAuthenticationToken(
-                            userId,
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)));
-                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
-            }
-        } catch (Exception e) {
-            // Log error but continue - let Spring Security handle unauthorized requests
-            // This prevents silent failures that could cause 403 instead of 401
+        String token = extractToken(request);
+        // An invalid token leaves the request anonymous; Spring Security answers 401 where needed
+        JwtPrincipal principal = StringUtils.hasText(token) ? jwtUtil.parse(token) : null;
+        if (principal != null && !revocations.isRevoked(principal)) {
+            // Controllers read the user id as (Long) auth.getPrincipal()
+            var auth = new UsernamePasswordAuthenticationToken(
+                    principal.userId(),
+                    null,
+                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + principal.role().name())));
+            auth.setDetails(detailsSource.buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(auth);
         }
         filterChain.doFilter(request, response);
     }
@@ -72,4 +72,3 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         return null;
     }
 }
-
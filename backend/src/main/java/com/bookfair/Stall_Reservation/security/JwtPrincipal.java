@@ -0,0 +1,7 @@
+package com.bookfair.Stall_Reservation.security;
+
+import com.bookfair.Stall_Reservation.enums.UserRole;
+
+/** The verified contents of an access token. */
+public record JwtPrincipal(Long userId, String email, UserRole role, int tokenVersion, long expiresAtMillis) {
+}
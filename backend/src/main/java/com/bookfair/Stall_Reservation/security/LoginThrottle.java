@@ -0,0 +1,101 @@
+package com.bookfair.Stall_Reservation.security;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets in front of the credential endpoints, one per client IP and one per email, so a
+ * single source or a single account cannot keep the password hashing pool busy. Buckets live in
+ * memory on each node; idle ones are dropped once they have refilled.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final class Bucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(int capacity, int perMinute, long now) {
+            this.capacity = capacity;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        /** Takes a token and returns 0, or returns how many nanoseconds until one is available. */
+        synchronized long tryTake(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+
+    private final AppProperties.Auth cfg;
+    private final ConcurrentHashMap<String, Bucket> byIp = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> byEmail = new ConcurrentHashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public LoginThrottle(AppProperties appProperties) {
+        this.cfg = appProperties.getAuth();
+    }
+
+    public void checkIp(String ip) {
+        take(byIp, ip, cfg.getIpBurst(), cfg.getIpPerMinute(), "Too many attempts from this address, please try again later");
+    }
+
+    public void checkEmail(String email) {
+        if (email == null)
+            return;
+        take(byEmail, email.trim().toLowerCase(Locale.ROOT), cfg.getEmailBurst(), cfg.getEmailPerMinute(),
+                "Too many attempts for this account, please try again later");
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.throttle-sweep-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        byIp.values().removeIf(bucket -> bucket.isFull(now));
+        byEmail.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("trackedIps", byIp.size());
+        result.put("trackedEmails", byEmail.size());
+        result.put("throttled", throttled.get());
+        return result;
+    }
+
+    private void take(ConcurrentHashMap<String, Bucket> buckets, String key, int capacity, int perMinute, String message) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, perMinute, now));
+        long waitNanos = bucket.tryTake(now);
+        if (waitNanos > 0) {
+            throttled.incrementAndGet();
+            throw new ThrottledException(message, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+        }
+    }
+}
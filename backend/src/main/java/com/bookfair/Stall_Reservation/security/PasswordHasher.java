@@ -0,0 +1,113 @@
+package com.bookfair.Stall_Reservation.security;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt on a small bounded pool, so that a burst of logins can use at most that many cores
+ * and the request threads serving bookings keep the rest. Work that cannot be queued, or waits
+ * longer than the timeout, is answered with 429 instead of piling up.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String BUSY = "Too many sign-in attempts right now, please try again shortly";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor workers;
+    private final long timeoutMs;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, AppProperties appProperties) {
+        this.passwordEncoder = passwordEncoder;
+        AppProperties.Auth cfg = appProperties.getAuth();
+        this.timeoutMs = cfg.getHashTimeoutMs();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(cfg.getHashThreads(), cfg.getHashThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cfg.getHashQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Fails fast when a hash would not be queued, before the caller does anything else for the request. */
+    public void checkCapacity() {
+        if (workers.getQueue().remainingCapacity() == 0) {
+            rejected.incrementAndGet();
+            throw new ThrottledException(BUSY, 1);
+        }
+    }
+
+    public boolean matches(CharSequence rawPassword, String passwordHash) {
+        return run(() -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hashThreads", workers.getMaximumPoolSize());
+        result.put("hashQueueDepth", workers.getQueue().size());
+        result.put("hashed", hashed.get());
+        result.put("hashRejected", rejected.get());
+        result.put("hashTimedOut", timedOut.get());
+        return result;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = workers.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ThrottledException(BUSY, 1);
+        }
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            hashed.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            // Still queued: drop it rather than spend a core on an answer nobody waits for
+            future.cancel(false);
+            timedOut.incrementAndGet();
+            throw new ThrottledException(BUSY, 1);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ThrottledException(BUSY, 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookfair.Stall_Reservation.security;
+
+import com.bookfair.Stall_Reservation.config.JwtUtil;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+
+/**
+ * Identifies STOMP sessions from the access token in the CONNECT frame's {@code Authorization}
+ * header, so that {@code /user/...} destinations reach the right vendor. Sessions without a valid
+ * token stay anonymous and keep the public topics. Other users' queues cannot be subscribed to
+ * directly; only through {@code /user}, which resolves to the session's own. Clients only send to
+ * the application ({@code /app}); a frame addressed to a broker destination would reach every
+ * subscriber, and with a relay broker every node, unchecked.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final TokenRevocations revocations;
+
+    public StompAuthInterceptor(JwtUtil jwtUtil, TokenRevocations revocations) {
+        this.jwtUtil = jwtUtil;
+        this.revocations = revocations;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null)
+            return message;
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String bearer = accessor.getFirstNativeHeader("Authorization");
+            if (StringUtils.hasText(bearer) && bearer.startsWith("Bearer ")) {
+                JwtPrincipal principal = jwtUtil.parse(bearer.substring(7));
+                if (principal != null && !revocations.isRevoked(principal)) {
+                    // Same shape as the HTTP authentication; its name is the user id
+                    accessor.setUser(new UsernamePasswordAuthenticationToken(principal.userId(), null,
+                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + principal.role().name()))));
+                }
+            }
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith("/app/"))
+                throw new MessagingException("Clients may only send to /app destinations");
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            if (destination != null && destination.startsWith("/queue/"))
+                throw new MessagingException("Subscribe to /user" + destination + " instead");
+        }
+        return message;
+    }
+}
@@ -0,0 +1,88 @@
+package com.bookfair.Stall_Reservation.security;
+
+import com.bookfair.Stall_Reservation.config.JwtProperties;
+import com.bookfair.Stall_Reservation.entity.User;
+import com.bookfair.Stall_Reservation.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimum token version per user, checked on every authenticated request without a database read.
+ * Only recent revocations are kept: once an access token lifetime has passed, every token issued
+ * before the revocation has expired, and refresh tokens are checked against the database.
+ */
+@Component
+public class TokenRevocations {
+
+    private record Revocation(int version, long revokedAtMillis) {
+    }
+
+    // Allowance for clock drift between the node that issued a token and this one
+    private static final long SKEW_MILLIS = 60_000;
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long retainMillis;
+    private final ConcurrentHashMap<Long, Revocation> revocations = new ConcurrentHashMap<>();
+
+    public TokenRevocations(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                            JwtProperties jwtProperties) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.retainMillis = jwtProperties.getExpirationMs() + SKEW_MILLIS;
+    }
+
+    // updatedAt is no earlier than the revocation, so entries rebuilt from it are kept long enough
+    @PostConstruct
+    public void load() {
+        LocalDateTime since = LocalDateTime.now().minusNanos(retainMillis * 1_000_000);
+        for (Object[] row : userRepository.findTokenVersionsChangedSince(since)) {
+            long at = ((LocalDateTime) row[2]).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            record((Long) row[0], (Integer) row[1], at);
+        }
+    }
+
+    public boolean isRevoked(JwtPrincipal principal) {
+        Revocation revocation = revocations.get(principal.userId());
+        return revocation != null && principal.tokenVersion() < revocation.version();
+    }
+
+    /** Invalidates the user's tokens once the surrounding transaction commits; the caller saves the user. */
+    public void revoke(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        eventPublisher.publishEvent(new TokenRevokedEvent(this, user.getId(), user.getTokenVersion()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        apply(event.getUserId(), event.getTokenVersion());
+    }
+
+    /** Records a revocation made elsewhere (another node). */
+    public void apply(Long userId, int tokenVersion) {
+        record(userId, tokenVersion, System.currentTimeMillis());
+    }
+
+    public int size() {
+        return revocations.size();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - retainMillis;
+        revocations.values().removeIf(r -> r.revokedAtMillis() < cutoff);
+    }
+
+    private void record(Long userId, int tokenVersion, long revokedAtMillis) {
+        revocations.merge(userId, new Revocation(tokenVersion, revokedAtMillis),
+                (current, next) -> next.version() >= current.version() ? next : current);
+    }
+}
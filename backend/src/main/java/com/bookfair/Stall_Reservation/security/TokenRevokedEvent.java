@@ -0,0 +1,23 @@
+package com.bookfair.Stall_Reservation.security;
+
+import org.springframework.context.ApplicationEvent;
+
+/** Every token of the user with a lower version is no longer valid. */
+public class TokenRevokedEvent extends ApplicationEvent {
+    private final Long userId;
+    private final int tokenVersion;
+
+    public TokenRevokedEvent(Object source, Long userId, int tokenVersion) {
+        super(source);
+        this.userId = userId;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
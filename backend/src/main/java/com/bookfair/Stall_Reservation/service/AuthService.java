@@ -10,6 +10,8 @@ public interface AuthService {
 
     Map<String, Object> login(String email, String password, UserRole role);
 
+    Map<String, Object> refresh(String refreshToken);
+
     void registerVendor(String name, String email, String phone, String password);
 
     void forgotPassword(String email, String mobileNumber, String newPassword);
@@ -0,0 +1,19 @@
+package com.bookfair.Stall_Reservation.service;
+
+import com.bookfair.Stall_Reservation.enums.EmailType;
+import com.bookfair.Stall_Reservation.enums.OutboxStatus;
+
+import java.util.List;
+import java.util.Map;
+
+// Transactional outbox for outgoing email: rows are written with the state change and sent after commit
+public interface EmailOutboxService {
+
+    void enqueue(EmailType type, Long reservationId, String recipient, Map<String, String> params);
+
+    List<Map<String, Object>> list(OutboxStatus status);
+
+    void redrive(Long id);
+
+    int redriveAllDead();
+}
@@ -4,7 +4,7 @@ import com.bookfair.Stall_Reservation.entity.Reservation;
 
 public interface EmailService {
 
-    void sendBookingConfirmation(Reservation reservation, byte[] qrPng);
+    void sendBookingConfirmation(Reservation reservation);
 
     void sendCancellationNotice(Reservation reservation);
 
@@ -12,7 +12,7 @@ public interface EmailService {
 
     void sendEventRemovedNotice(String vendorEmail, String eventName, String bookingId);
 
-    void sendPaymentConfirmation(Reservation reservation, byte[] qrPng);
+    void sendPaymentConfirmation(Reservation reservation);
 
     void sendCancellationDeadlineReminder(Reservation reservation);
 
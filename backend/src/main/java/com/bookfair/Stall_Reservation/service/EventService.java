@@ -1,5 +1,6 @@
 package com.bookfair.Stall_Reservation.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,5 +20,8 @@ public interface EventService {
 
     Long createEvent(Map<String, Object> body, Long adminId);
 
+    // Null takes the event out of on-sale mode
+    void setOnSaleAt(Long id, LocalDateTime onSaleAt);
+
     void removeEvent(Long id);
 }
@@ -2,5 +2,7 @@ package com.bookfair.Stall_Reservation.service;
 
 public interface QrCodeService {
     byte[] generatePng(String text, int size);
-}
 
+    // Vector output: a few hundred bytes and no raster encoding, preferred for browser views
+    byte[] generateSvg(String text, int size);
+}
@@ -2,8 +2,11 @@ package com.bookfair.Stall_Reservation.service;
 
 import com.bookfair.Stall_Reservation.entity.Reservation;
 import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.dto.reservation.PendingBooking;
+import com.bookfair.Stall_Reservation.enums.ReservationAction;
 
 import java.util.List;
+import java.util.Map;
 
 
 //Service interface for reservation business logic
@@ -13,6 +16,10 @@ public interface ReservationService {
 //  Create a pending reservation for a vendor
     Reservation createPendingReservation(CreateBookingRequest request, Long vendorId);
 
+//  Create pending reservations for several requests on one event in a single transaction, first come
+//  first served; each booking is given its reservation or its error
+    void createPendingReservations(List<PendingBooking> bookings);
+
     void approveReservation(Long reservationId);
 
     void rejectReservation(Long reservationId);
@@ -21,6 +28,9 @@ public interface ReservationService {
 
     void rejectAndRefund(Long reservationId);
 
+//  Apply one admin action to many reservations; returns a per-reservation outcome
+    Map<String, Object> bulkTransition(ReservationAction action, List<Long> reservationIds);
+
 //  Get all reservations for a specific vendor
     List<Reservation> getReservationsForVendor(Long vendorId);
 
@@ -30,5 +40,7 @@ public interface ReservationService {
 //   Get reservation by booking ID
     Reservation getByBookingId(String bookingId);
 
+    Reservation getById(Long reservationId);
+
     boolean hasActiveReservation(Long vendorId, Long eventId);
 }
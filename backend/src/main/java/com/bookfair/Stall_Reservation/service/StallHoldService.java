@@ -0,0 +1,22 @@
+package com.bookfair.Stall_Reservation.service;
+
+import com.bookfair.Stall_Reservation.dto.event.StallHoldEvent;
+
+import java.util.List;
+import java.util.Map;
+
+// Short-lived stall holds taken while a vendor fills in the booking and payment forms
+public interface StallHoldService {
+
+    // Replace the vendor's hold on this event with the given stalls
+    Map<String, Object> placeHold(Long eventId, List<Long> stallIds, Long vendorId);
+
+    void releaseHold(Long eventId, Long vendorId);
+
+    List<Long> getHeldStallIds(Long eventId);
+
+    boolean isHeldByOther(Long eventId, Long stallId, Long vendorId);
+
+    // A hold placed (or, with no stalls, released) on another node; true if it changed anything here
+    boolean applyRemote(StallHoldEvent hold);
+}
@@ -0,0 +1,121 @@
+package com.bookfair.Stall_Reservation.service.impl;
+
+import com.bookfair.Stall_Reservation.booking.BookingEngine;
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.dto.reservation.PendingBooking;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.enums.ReservationAction;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The ReservationService seen by business code when {@code app.booking.engine=actor}: new bookings
+ * go through {@link BookingEngine}, everything else straight to {@link ReservationServiceImpl}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.booking.engine", havingValue = "actor")
+public class ActorReservationServiceImpl implements ReservationService {
+
+    private final ReservationService transactional;
+    private final BookingEngine engine;
+    private final long waitSeconds;
+
+    public ActorReservationServiceImpl(@Qualifier("reservationServiceImpl") ReservationService transactional,
+                                       BookingEngine engine, AppProperties appProperties) {
+        this.transactional = transactional;
+        this.engine = engine;
+        this.waitSeconds = appProperties.getBooking().getEngineWaitSeconds();
+    }
+
+    @Override
+    public Reservation createPendingReservation(CreateBookingRequest request, Long vendorId) {
+        BookingEngine.Command command = engine.submit(request, vendorId);
+        try {
+            try {
+                return command.result().get(waitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (command.claim())
+                    throw e;
+                // Already being written: report what happens to it rather than a failure that may
+                // turn out to be a booking. The actor completes every command it takes, whatever happens
+                return command.result().get();
+            }
+        } catch (TimeoutException e) {
+            throw new ThrottledException("Booking is taking longer than usual. Please try again.", 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ThrottledException("Booking was interrupted. Please try again.", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void createPendingReservations(List<PendingBooking> bookings) {
+        transactional.createPendingReservations(bookings);
+    }
+
+    @Override
+    public void approveReservation(Long reservationId) {
+        transactional.approveReservation(reservationId);
+    }
+
+    @Override
+    public void rejectReservation(Long reservationId) {
+        transactional.rejectReservation(reservationId);
+    }
+
+    @Override
+    public void refundReservation(Long reservationId) {
+        transactional.refundReservation(reservationId);
+    }
+
+    @Override
+    public void rejectAndRefund(Long reservationId) {
+        transactional.rejectAndRefund(reservationId);
+    }
+
+    @Override
+    public Map<String, Object> bulkTransition(ReservationAction action, List<Long> reservationIds) {
+        return transactional.bulkTransition(action, reservationIds);
+    }
+
+    @Override
+    public List<Reservation> getReservationsForVendor(Long vendorId) {
+        return transactional.getReservationsForVendor(vendorId);
+    }
+
+    @Override
+    public void cancelReservation(Long reservationId, Long vendorId) {
+        transactional.cancelReservation(reservationId, vendorId);
+    }
+
+    @Override
+    public Reservation getByBookingId(String bookingId) {
+        return transactional.getByBookingId(bookingId);
+    }
+
+    @Override
+    public Reservation getById(Long reservationId) {
+        return transactional.getById(reservationId);
+    }
+
+    @Override
+    public boolean hasActiveReservation(Long vendorId, Long eventId) {
+        return transactional.hasActiveReservation(vendorId, eventId);
+    }
+}
@@ -1,11 +1,16 @@
 package com.bookfair.Stall_Reservation.service.impl;
 
+import com.bookfair.Stall_Reservation.booking.DoubleBookingGuard;
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
 import com.bookfair.Stall_Reservation.entity.*;
 import com.bookfair.Stall_Reservation.enums.ReservationStatus;
 import com.bookfair.Stall_Reservation.enums.UserRole;
 import com.bookfair.Stall_Reservation.repository.*;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
 import com.bookfair.Stall_Reservation.service.AdminService;
 import com.bookfair.Stall_Reservation.service.EmailService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +32,10 @@ public class AdminServiceImpl implements AdminService {
     private final ReservationGenreRepository reservationGenreRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final StallOccupancyIndex occupancyIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenRevocations tokenRevocations;
+    private final DoubleBookingGuard doubleBookingGuard;
 
     public AdminServiceImpl(EventRepository eventRepository,
                             ReservationRepository reservationRepository,
@@ -34,7 +43,11 @@ public class AdminServiceImpl implements AdminService {
                             UserRepository userRepository,
                             ReservationGenreRepository reservationGenreRepository,
                             PasswordEncoder passwordEncoder,
-                            EmailService emailService) {
+                            EmailService emailService,
+                            StallOccupancyIndex occupancyIndex,
+                            ApplicationEventPublisher eventPublisher,
+                            TokenRevocations tokenRevocations,
+                            DoubleBookingGuard doubleBookingGuard) {
         this.eventRepository = eventRepository;
         this.reservationRepository = reservationRepository;
         this.paymentRepository = paymentRepository;
@@ -42,6 +55,10 @@ public class AdminServiceImpl implements AdminService {
         this.reservationGenreRepository = reservationGenreRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
+        this.occupancyIndex = occupancyIndex;
+        this.eventPublisher = eventPublisher;
+        this.tokenRevocations = tokenRevocations;
+        this.doubleBookingGuard = doubleBookingGuard;
     }
 
     @Override
@@ -174,6 +191,7 @@ public class AdminServiceImpl implements AdminService {
         if (user.getRole() != UserRole.VENDOR)
             throw new IllegalArgumentException("User is not a vendor");
         user.setActive(false);
+        tokenRevocations.revoke(user);
         userRepository.save(user);
         emailService.sendAccountDeactivatedNotice(user.getEmail(), user.getName());
     }
@@ -183,8 +201,16 @@ public class AdminServiceImpl implements AdminService {
     public void cancelReservation(Long id) {
         Reservation r = reservationRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
+        ReservationStatus previous = r.getStatus();
         r.setStatus(ReservationStatus.CANCELLED);
         reservationRepository.save(r);
+        // Stalls already let go may belong to a newer booking by now
+        if (previous == ReservationStatus.PENDING || previous == ReservationStatus.SUCCESS) {
+            doubleBookingGuard.release(List.of(r.getId()));
+            occupancyIndex.release(r.getEvent().getId(),
+                    r.getStalls().stream().map(rs -> rs.getStall().getId()).toList());
+        }
+        eventPublisher.publishEvent(new StallBookingEvent(this, r.getEvent().getId()));
     }
 
     @Override
@@ -214,6 +240,7 @@ public class AdminServiceImpl implements AdminService {
     public void changePassword(Long userId, String newPassword) {
         User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setPasswordHash(passwordEncoder.encode(newPassword));
+        tokenRevocations.revoke(user);
         userRepository.save(user);
     }
 
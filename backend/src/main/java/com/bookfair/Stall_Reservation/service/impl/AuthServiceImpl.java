@@ -4,30 +4,42 @@ import com.bookfair.Stall_Reservation.config.JwtUtil;
 import com.bookfair.Stall_Reservation.entity.User;
 import com.bookfair.Stall_Reservation.enums.UserRole;
 import com.bookfair.Stall_Reservation.repository.UserRepository;
+import com.bookfair.Stall_Reservation.security.JwtPrincipal;
+import com.bookfair.Stall_Reservation.security.PasswordHasher;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
 import com.bookfair.Stall_Reservation.service.AuthService;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
+    private final TokenRevocations tokenRevocations;
+    private final TransactionTemplate transactionTemplate;
 
-    public AuthServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
-                           JwtUtil jwtUtil) {
+    public AuthServiceImpl(UserRepository userRepository, PasswordHasher passwordHasher,
+                           JwtUtil jwtUtil, TokenRevocations tokenRevocations,
+                           PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocations = tokenRevocations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public Map<String, Object> login(String email, String password, UserRole role) {
+        passwordHasher.checkCapacity();
+        // Unknown, wrong-role and deactivated accounts are turned away before any hashing
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AuthException("Invalid email or password"));
         if (user.getRole() != role) {
@@ -36,20 +48,42 @@ public class AuthServiceImpl implements AuthService {
         if (!user.isActive()) {
             throw new AuthException("Account is deactivated");
         }
-        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
+        if (!passwordHasher.matches(password, user.getPasswordHash())) {
             throw new AuthException("Invalid email or password");
         }
-        String token = jwtUtil.generateToken(user);
+        return tokens(user);
+    }
+
+    @Override
+    public Map<String, Object> refresh(String refreshToken) {
+        JwtPrincipal principal = jwtUtil.parseRefresh(refreshToken);
+        if (principal == null) {
+            throw new AuthException("Session expired, please log in again");
+        }
+        // The one database read per access token lifetime; it sees revocations older than the in-memory ones
+        User user = userRepository.findById(principal.userId())
+                .orElseThrow(() -> new AuthException("Session expired, please log in again"));
+        if (!user.isActive()) {
+            throw new AuthException("Account is deactivated");
+        }
+        if (user.getTokenVersion() != principal.tokenVersion()) {
+            throw new AuthException("Session expired, please log in again");
+        }
+        return tokens(user);
+    }
+
+    private Map<String, Object> tokens(User user) {
         return Map.of(
-                "token", token,
+                "token", jwtUtil.generateToken(user),
+                "refreshToken", jwtUtil.generateRefreshToken(user),
                 "userId", user.getId(),
                 "email", user.getEmail(),
                 "name", user.getName(),
                 "role", user.getRole().name());
     }
 
+    // Hashing happens outside any transaction so that no connection is held while it waits
     @Override
-    @Transactional
     public void registerVendor(String name, String email, String phone, String password) {
         if (userRepository.existsByEmail(email)) {
             throw new AuthException("Email already registered");
@@ -58,21 +92,32 @@ public class AuthServiceImpl implements AuthService {
         user.setName(name);
         user.setEmail(email);
         user.setPhone(phone);
-        user.setPasswordHash(passwordEncoder.encode(password));
+        user.setPasswordHash(passwordHasher.encode(password));
         user.setRole(UserRole.VENDOR);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new AuthException("Email already registered");
+        }
     }
 
+    // Hashing happens outside any transaction so that no connection is held while it waits
     @Override
-    @Transactional
     public void forgotPassword(String email, String mobileNumber, String newPassword) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AuthException("No account found with this email"));
         if (!user.getPhone().trim().equals(mobileNumber.trim())) {
             throw new AuthException("Mobile number does not match our records");
         }
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        String passwordHash = passwordHasher.encode(newPassword);
+        Long userId = user.getId();
+        // The copy read above may be seconds old by now; change only these fields on the current row
+        transactionTemplate.executeWithoutResult(status -> {
+            User current = userRepository.lockAllById(List.of(userId)).stream().findFirst()
+                    .orElseThrow(() -> new AuthException("No account found with this email"));
+            current.setPasswordHash(passwordHash);
+            tokenRevocations.revoke(current);
+        });
     }
 
     @Override
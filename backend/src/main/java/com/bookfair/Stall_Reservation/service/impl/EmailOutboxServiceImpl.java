@@ -0,0 +1,220 @@
+package com.bookfair.Stall_Reservation.service.impl;
+
+import com.bookfair.Stall_Reservation.booking.AfterCommit;
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.entity.EmailOutbox;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.enums.EmailType;
+import com.bookfair.Stall_Reservation.enums.OutboxStatus;
+import com.bookfair.Stall_Reservation.repository.EmailOutboxRepository;
+import com.bookfair.Stall_Reservation.repository.ReservationRepository;
+import com.bookfair.Stall_Reservation.service.EmailOutboxService;
+import com.bookfair.Stall_Reservation.service.EmailService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+public class EmailOutboxServiceImpl implements EmailOutboxService {
+
+    private static final int LEASE_MINUTES = 5;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final ReservationRepository reservationRepository;
+    private final EmailService smtpEmailService;
+    private final AppProperties appProperties;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadPoolExecutor workers;
+
+    public EmailOutboxServiceImpl(EmailOutboxRepository outboxRepository,
+                                  ReservationRepository reservationRepository,
+                                  @Qualifier("emailServiceImpl") EmailService smtpEmailService,
+                                  AppProperties appProperties,
+                                  PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.reservationRepository = reservationRepository;
+        this.smtpEmailService = smtpEmailService;
+        this.appProperties = appProperties;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        AppProperties.EmailOutbox cfg = appProperties.getEmailOutbox();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Bounded queue; anything rejected stays PENDING and is picked up by the poller
+        this.workers = new ThreadPoolExecutor(cfg.getWorkerThreads(), cfg.getWorkerThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cfg.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "email-outbox-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    @Override
+    @Transactional
+    public void enqueue(EmailType type, Long reservationId, String recipient, Map<String, String> params) {
+        EmailOutbox message = new EmailOutbox();
+        message.setType(type);
+        message.setReservationId(reservationId);
+        message.setRecipient(recipient);
+        try {
+            message.setPayload(params == null || params.isEmpty() ? null : objectMapper.writeValueAsString(params));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid email parameters", e);
+        }
+        outboxRepository.save(message);
+        AfterCommit.run(() -> submit(message.getId()));
+    }
+
+    @Override
+    public List<Map<String, Object>> list(OutboxStatus status) {
+        return outboxRepository.findByStatusOrderByCreatedAtDesc(status).stream().map(m -> {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", m.getId());
+            map.put("type", m.getType().name());
+            map.put("recipient", m.getRecipient());
+            map.put("reservationId", m.getReservationId());
+            map.put("status", m.getStatus().name());
+            map.put("attempts", m.getAttempts());
+            map.put("lastError", m.getLastError() != null ? m.getLastError() : "");
+            map.put("createdAt", m.getCreatedAt().toString());
+            map.put("nextAttemptAt", m.getNextAttemptAt().toString());
+            return map;
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public void redrive(Long id) {
+        EmailOutbox message = outboxRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Email not found"));
+        if (message.getStatus() != OutboxStatus.DEAD)
+            throw new IllegalStateException("Only failed emails can be re-sent");
+        resetForRedrive(message);
+    }
+
+    @Override
+    @Transactional
+    public int redriveAllDead() {
+        List<EmailOutbox> dead = outboxRepository.findByStatusOrderByCreatedAtDesc(OutboxStatus.DEAD);
+        dead.forEach(this::resetForRedrive);
+        return dead.size();
+    }
+
+    private void resetForRedrive(EmailOutbox message) {
+        message.setStatus(OutboxStatus.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(LocalDateTime.now());
+        outboxRepository.save(message);
+        AfterCommit.run(() -> submit(message.getId()));
+    }
+
+    // Picks up retries that have come due and anything the pool could not take at enqueue time
+    @Scheduled(fixedDelayString = "${app.email-outbox.poll-interval-ms:15000}")
+    public void pollDue() {
+        var due = outboxRepository.findTop100ByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                OutboxStatus.PENDING, LocalDateTime.now());
+        for (EmailOutbox message : due) {
+            if (!submit(message.getId()))
+                break;
+        }
+    }
+
+    private boolean submit(Long id) {
+        try {
+            workers.execute(() -> deliver(id));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void deliver(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        if (outboxRepository.claim(id, now, now.plusMinutes(LEASE_MINUTES)) == 0)
+            return; // already sent, dead, or being sent by another worker
+        EmailOutbox message = outboxRepository.findById(id).orElse(null);
+        if (message == null)
+            return;
+        try {
+            readOnlyTx.executeWithoutResult(status -> send(message));
+            message.setStatus(OutboxStatus.SENT);
+            message.setSentAt(LocalDateTime.now());
+            message.setLastError(null);
+        } catch (Exception e) {
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            message.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            AppProperties.EmailOutbox cfg = appProperties.getEmailOutbox();
+            if (attempts >= cfg.getMaxAttempts()) {
+                message.setStatus(OutboxStatus.DEAD);
+            } else {
+                long backoff = Math.min(MAX_BACKOFF_SECONDS, cfg.getBaseBackoffSeconds() * (1L << (attempts - 1)));
+                message.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+            }
+        }
+        outboxRepository.save(message);
+    }
+
+    private void send(EmailOutbox message) {
+        Map<String, String> params = readParams(message.getPayload());
+        switch (message.getType()) {
+            case EVENT_REMOVED_NOTICE -> smtpEmailService.sendEventRemovedNotice(message.getRecipient(),
+                    params.get("eventName"), params.get("bookingId"));
+            case ACCOUNT_DEACTIVATED_NOTICE -> smtpEmailService.sendAccountDeactivatedNotice(message.getRecipient(),
+                    params.get("name"));
+            default -> {
+                Reservation reservation = reservationRepository.findById(message.getReservationId())
+                        .orElseThrow(() -> new IllegalStateException("Reservation " + message.getReservationId() + " not found"));
+                switch (message.getType()) {
+                    case BOOKING_CONFIRMATION -> smtpEmailService.sendBookingConfirmation(reservation);
+                    case PAYMENT_CONFIRMATION -> smtpEmailService.sendPaymentConfirmation(reservation);
+                    case CANCELLATION_NOTICE -> smtpEmailService.sendCancellationNotice(reservation);
+                    case REFUND_NOTICE -> smtpEmailService.sendRefundNotice(reservation);
+                    case CANCELLATION_DEADLINE_REMINDER -> smtpEmailService.sendCancellationDeadlineReminder(reservation);
+                    case EVENT_REMINDER -> smtpEmailService.sendEventReminder(reservation);
+                    case VENDOR_CANCELLATION_SUCCESS -> smtpEmailService.sendVendorCancellationSuccess(reservation);
+                    default -> throw new IllegalStateException("Unsupported email type " + message.getType());
+                }
+            }
+        }
+    }
+
+    private Map<String, String> readParams(String payload) {
+        if (payload == null)
+            return Map.of();
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, String>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt email payload", e);
+        }
+    }
+}
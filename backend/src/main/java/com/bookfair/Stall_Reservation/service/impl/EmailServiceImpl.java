@@ -2,11 +2,12 @@ package com.bookfair.Stall_Reservation.service.impl;
 
 import com.bookfair.Stall_Reservation.entity.Reservation;
 import com.bookfair.Stall_Reservation.service.EmailService;
+import com.bookfair.Stall_Reservation.service.QrCodeService;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -17,6 +18,7 @@ import java.util.stream.Collectors;
 public class EmailServiceImpl implements EmailService {
 
     private final JavaMailSender mailSender;
+    private final QrCodeService qrCodeService;
 
     private static final String SUPPORT_EMAIL = "support@bookfairmanagement.com";
     private static final String WEBSITE_URL = "https://bookfairmanagement.com";
@@ -24,8 +26,9 @@ public class EmailServiceImpl implements EmailService {
     private static final String SYSTEM_NAME = "Book Fair Management System";
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a");
 
-    public EmailServiceImpl(JavaMailSender mailSender) {
+    public EmailServiceImpl(JavaMailSender mailSender, QrCodeService qrCodeService) {
         this.mailSender = mailSender;
+        this.qrCodeService = qrCodeService;
     }
 
     //SHARED TEMPLATE UTILITIES
@@ -142,17 +145,18 @@ public class EmailServiceImpl implements EmailService {
             helper.setSubject(subject);
             helper.setText(text, false);
             mailSender.send(msg);
-        } catch (Exception ignored) {
-            // Silently fail
+        } catch (Exception e) {
+            // Surface the failure so the outbox worker retries the message
+            throw new MailSendException("Failed to send email to " + to, e);
         }
     }
 
     // EMAIL 1: BOOKING CREATED (PENDING)
 
     @Override
-    @Async
-    public void sendBookingConfirmation(Reservation reservation, byte[] qrPng) {
+    public void sendBookingConfirmation(Reservation reservation) {
         try {
+            byte[] qrPng = qrCodeService.generatePng(reservation.getBookingId(), 256);
             MimeMessage msg = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(msg, true, "UTF-8");
             helper.setTo(reservation.getVendor().getEmail());
@@ -205,10 +209,10 @@ public class EmailServiceImpl implements EmailService {
 // EMAIL 2: PAYMENT CONFIRMED (Admin Approved) + QR
 
     @Override
-    @Async
-    public void sendPaymentConfirmation(Reservation reservation, byte[] qrPng) {
+    public void sendPaymentConfirmation(Reservation reservation) {
 
         try {
+            byte[] qrPng = qrCodeService.generatePng(reservation.getBookingId(), 256);
             MimeMessage msg = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(msg, true, "UTF-8");
             helper.setTo(reservation.getVendor().getEmail());
@@ -264,7 +268,6 @@ public class EmailServiceImpl implements EmailService {
     //EMAIL 3: RESERVATION CANCELLATION
 
     @Override
-    @Async
     public void sendCancellationNotice(Reservation reservation) {
 
         try {
@@ -318,7 +321,6 @@ public class EmailServiceImpl implements EmailService {
     //EMAIL 4: REFUND SUCCESS
 
     @Override
-    @Async
     public void sendRefundNotice(Reservation reservation) {
 
         try {
@@ -369,7 +371,6 @@ public class EmailServiceImpl implements EmailService {
     // EMAIL 5: EVENT REMOVED / CANCELLED
 
     @Override
-    @Async
     public void sendEventRemovedNotice(String vendorEmail, String eventName, String bookingId) {
 
         try {
@@ -408,7 +409,6 @@ public class EmailServiceImpl implements EmailService {
     // EMAIL 6: ACCOUNT DEACTIVATED
 
     @Override
-    @Async
     public void sendAccountDeactivatedNotice(String email, String name) {
 
         try {
@@ -448,7 +448,6 @@ public class EmailServiceImpl implements EmailService {
     // EMAIL 7: CANCELLATION DEADLINE REMINDER
 
     @Override
-    @Async
     public void sendCancellationDeadlineReminder(Reservation reservation) {
 
         try {
@@ -495,7 +494,6 @@ public class EmailServiceImpl implements EmailService {
     // EMAIL 8: EVENT REMINDER (2 DAYS BEFORE)
 
     @Override
-    @Async
     public void sendEventReminder(Reservation reservation) {
 
         try {
@@ -541,7 +539,6 @@ public class EmailServiceImpl implements EmailService {
     // EMAIL 9: VENDOR CANCELLATION SUCCESS
 
     @Override
-    @Async
     public void sendVendorCancellationSuccess(Reservation reservation) {
 
         try {
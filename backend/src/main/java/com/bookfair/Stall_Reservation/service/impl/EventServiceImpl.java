@@ -1,11 +1,16 @@
 package com.bookfair.Stall_Reservation.service.impl;
 
+import com.bookfair.Stall_Reservation.booking.DoubleBookingGuard;
+import com.bookfair.Stall_Reservation.booking.EventCatalogCache;
+import com.bookfair.Stall_Reservation.booking.EventSnapshotCache;
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
 import com.bookfair.Stall_Reservation.entity.*;
 import com.bookfair.Stall_Reservation.enums.ReservationStatus;
 import com.bookfair.Stall_Reservation.enums.StallSize;
 import com.bookfair.Stall_Reservation.service.EmailService;
 import com.bookfair.Stall_Reservation.repository.*;
 import com.bookfair.Stall_Reservation.service.EventService;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,28 +26,52 @@ public class EventServiceImpl implements EventService {
     private final EventRepository eventRepository;
     private final StallRepository stallRepository;
     private final ReservationRepository reservationRepository;
-    private final ReservationStallRepository reservationStallRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final StallOccupancyIndex occupancyIndex;
+    private final StallHoldService stallHoldService;
+    private final EventCatalogCache catalogCache;
+    private final EventSnapshotCache snapshotCache;
+    private final DoubleBookingGuard doubleBookingGuard;
 
     public EventServiceImpl(EventRepository eventRepository,
                             StallRepository stallRepository,
                             ReservationRepository reservationRepository,
-                            ReservationStallRepository reservationStallRepository,
                             UserRepository userRepository,
-                            EmailService emailService) {
+                            EmailService emailService,
+                            StallOccupancyIndex occupancyIndex,
+                            StallHoldService stallHoldService,
+                            EventCatalogCache catalogCache,
+                            EventSnapshotCache snapshotCache,
+                            DoubleBookingGuard doubleBookingGuard) {
         this.eventRepository = eventRepository;
         this.stallRepository = stallRepository;
         this.reservationRepository = reservationRepository;
-        this.reservationStallRepository = reservationStallRepository;
         this.userRepository = userRepository;
         this.emailService = emailService;
+        this.occupancyIndex = occupancyIndex;
+        this.stallHoldService = stallHoldService;
+        this.catalogCache = catalogCache;
+        this.snapshotCache = snapshotCache;
+        this.doubleBookingGuard = doubleBookingGuard;
     }
 
     @Override
     public List<Map<String, Object>> listUpcoming() {
+        return catalogCache.get(this::loadCatalog);
+    }
+
+    private EventCatalogCache.Catalog loadCatalog() {
         var events = eventRepository.findByActiveTrueOrderByEventDateAsc();
-        return events.stream().map(e -> Map.<String, Object>of(
+        Map<Long, Long> bookedCounts = new HashMap<>();
+        for (Object[] row : reservationRepository.countActiveGroupedByEventId()) {
+            bookedCounts.put((Long) row[0], (Long) row[1]);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // The list changes meaning once the next upcoming event starts, so cache it until then
+        LocalDateTime validUntil = events.stream().map(Event::getEventDate)
+                .filter(d -> d.isAfter(now)).findFirst().orElse(null);
+        List<Map<String, Object>> list = events.stream().map(e -> Map.<String, Object>of(
                         "id", e.getId(),
                         "name", e.getName(),
                         "description",
@@ -54,8 +83,10 @@ public class EventServiceImpl implements EventService {
                         "location", e.getLocation() != null ? e.getLocation() : "",
                         "eventDate", e.getEventDate().toString(),
                         "imageUrl", e.getImageUrl() != null ? e.getImageUrl() : "",
-                        "stallsBooked", reservationRepository.countActiveByEventId(e.getId())))
-                .collect(Collectors.toList());
+                        "onSaleAt", e.getOnSaleAt() != null ? e.getOnSaleAt().toString() : "",
+                        "stallsBooked", bookedCounts.getOrDefault(e.getId(), 0L)))
+                .toList();
+        return new EventCatalogCache.Catalog(list, validUntil);
     }
 
     @Override
@@ -66,18 +97,20 @@ public class EventServiceImpl implements EventService {
 
         List<Stall> stalls = stallRepository.findByEventIdOrderByStallCode(id);
         long bookedCount = reservationRepository.countActiveByEventId(id);
-        List<Long> bookedStallIds = reservationStallRepository.findBookedStallIdsByEventId(id);
+        List<Long> bookedStallIds = occupancyIndex.getBookedStallIds(id);
 
-        return Map.of(
-                "id", event.getId(),
-                "name", event.getName(),
-                "description", event.getDescription() != null ? event.getDescription() : "",
-                "location", event.getLocation() != null ? event.getLocation() : "",
-                "eventDate", event.getEventDate().toString(),
-                "imageUrl", event.getImageUrl() != null ? event.getImageUrl() : "",
-                "stallsBooked", bookedCount,
-                "bookedStallIds", bookedStallIds,
-                "stalls", stalls.stream().map(s -> {
+        return Map.ofEntries(
+                Map.entry("id", event.getId()),
+                Map.entry("name", event.getName()),
+                Map.entry("description", event.getDescription() != null ? event.getDescription() : ""),
+                Map.entry("location", event.getLocation() != null ? event.getLocation() : ""),
+                Map.entry("eventDate", event.getEventDate().toString()),
+                Map.entry("imageUrl", event.getImageUrl() != null ? event.getImageUrl() : ""),
+                Map.entry("onSaleAt", event.getOnSaleAt() != null ? event.getOnSaleAt().toString() : ""),
+                Map.entry("stallsBooked", bookedCount),
+                Map.entry("bookedStallIds", bookedStallIds),
+                Map.entry("heldStallIds", stallHoldService.getHeldStallIds(id)),
+                Map.entry("stalls", stalls.stream().map(s -> {
                     Map<String, Object> sm = new HashMap<>();
                     sm.put("id", s.getId());
                     sm.put("stallCode", s.getStallCode());
@@ -87,18 +120,23 @@ public class EventServiceImpl implements EventService {
                     sm.put("positionX", s.getPositionX());
                     sm.put("positionY", s.getPositionY());
                     return sm;
-                }).collect(Collectors.toList()));
+                }).collect(Collectors.toList())));
     }
 
     @Override
     public List<Map<String, Object>> getStallAvailability(Long eventId) {
+        if (!eventRepository.existsById(eventId))
+            return null;
+        var held = new java.util.HashSet<>(stallHoldService.getHeldStallIds(eventId));
         return stallRepository.findByEventIdOrderByStallCode(eventId).stream()
                 .map(s -> Map.<String, Object>of(
                         "id", s.getId(),
                         "stallCode", s.getStallCode(),
                         "size", s.getSize().name(),
                         "price", s.getPrice(),
-                        "blocked", s.isBlocked()))
+                        "blocked", s.isBlocked(),
+                        "booked", occupancyIndex.isBooked(eventId, s.getId()),
+                        "held", held.contains(s.getId())))
                 .collect(Collectors.toList());
     }
 
@@ -148,6 +186,7 @@ public class EventServiceImpl implements EventService {
                 "location", event.getLocation() != null ? event.getLocation() : "",
                 "eventDate", event.getEventDate().toString(),
                 "imageUrl", event.getImageUrl() != null ? event.getImageUrl() : "",
+                "onSaleAt", event.getOnSaleAt() != null ? event.getOnSaleAt().toString() : "",
                 "stalls", stalls.stream().map(s -> {
                     Map<String, Object> sm = new HashMap<>();
                     sm.put("id", s.getId());
@@ -174,6 +213,8 @@ public class EventServiceImpl implements EventService {
         event.setLocation((String) body.get("location"));
         event.setEventDate(java.time.LocalDateTime.parse((String) body.get("eventDate")));
         event.setImageUrl((String) body.getOrDefault("imageUrl", ""));
+        if (body.get("onSaleAt") instanceof String onSaleAt && !onSaleAt.isBlank())
+            event.setOnSaleAt(java.time.LocalDateTime.parse(onSaleAt));
         event.setCreatedBy(admin);
 
         @SuppressWarnings("unchecked")
@@ -181,6 +222,7 @@ public class EventServiceImpl implements EventService {
                 List.of());
         eventRepository.save(event);
 
+        List<Stall> stalls = new java.util.ArrayList<>();
         for (Map<String, Object> s : stallsInput) {
             Stall stall = new Stall();
             stall.setEvent(event);
@@ -192,11 +234,24 @@ public class EventServiceImpl implements EventService {
                 stall.setPositionX(((Number) s.get("positionX")).intValue());
             if (s.get("positionY") != null)
                 stall.setPositionY(((Number) s.get("positionY")).intValue());
-            stallRepository.save(stall);
+            stalls.add(stall);
         }
+        stallRepository.saveAll(stalls);
+        catalogCache.invalidate();
         return event.getId();
     }
 
+    @Override
+    @Transactional
+    public void setOnSaleAt(Long id, LocalDateTime onSaleAt) {
+        Event event = eventRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Event not found"));
+        event.setOnSaleAt(onSaleAt);
+        eventRepository.save(event);
+        catalogCache.invalidate();
+        snapshotCache.invalidate(id);
+    }
+
     @Override
     @Transactional
     public void removeEvent(Long id) {
@@ -214,5 +269,9 @@ public class EventServiceImpl implements EventService {
         }
         event.setActive(false);
         eventRepository.save(event);
+        doubleBookingGuard.releaseEvent(id);
+        occupancyIndex.evict(id);
+        catalogCache.invalidate();
+        snapshotCache.evict(id);
     }
 }
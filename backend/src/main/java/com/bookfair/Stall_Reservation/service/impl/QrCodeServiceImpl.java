@@ -6,24 +6,86 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class QrCodeServiceImpl implements QrCodeService {
 
+    // QRCodeWriter keeps no state between calls, so one instance is shared
+    private final QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    private final Map<String, byte[]> cache;
+
+    public QrCodeServiceImpl(@Value("${app.qr.cache-size:1000}") int cacheSize) {
+        // Access-ordered LRU keyed by format, size and text
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
     @Override
     public byte[] generatePng(String text, int size) {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        try {
-            BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, size, size);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
-            return baos.toByteArray();
-        } catch (WriterException | IOException e) {
-            throw new RuntimeException("Failed to generate QR code", e);
+        return cached("png:" + size + ":" + text, () -> {
+            try {
+                BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, size, size);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
+                return baos.toByteArray();
+            } catch (WriterException | IOException e) {
+                throw new RuntimeException("Failed to generate QR code", e);
+            }
+        });
+    }
+
+    @Override
+    public byte[] generateSvg(String text, int size) {
+        return cached("svg:" + size + ":" + text, () -> {
+            try {
+                // Size 0 yields one bit per module; the SVG viewBox does the scaling
+                BitMatrix m = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, 0, 0);
+                StringBuilder path = new StringBuilder();
+                for (int y = 0; y < m.getHeight(); y++) {
+                    int x = 0;
+                    while (x < m.getWidth()) {
+                        if (!m.get(x, y)) {
+                            x++;
+                            continue;
+                        }
+                        int start = x;
+                        while (x < m.getWidth() && m.get(x, y))
+                            x++;
+                        path.append('M').append(start).append(' ').append(y)
+                                .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+                    }
+                }
+                String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='" + size + "' height='" + size
+                        + "' viewBox='0 0 " + m.getWidth() + " " + m.getHeight() + "' shape-rendering='crispEdges'>"
+                        + "<rect width='100%' height='100%' fill='#fff'/>"
+                        + "<path fill='#000' d='" + path + "'/></svg>";
+                return svg.getBytes(StandardCharsets.UTF_8);
+            } catch (WriterException e) {
+                throw new RuntimeException("Failed to generate QR code", e);
+            }
+        });
+    }
+
+    private byte[] cached(String key, Supplier<byte[]> render) {
+        byte[] bytes = cache.get(key);
+        if (bytes == null) {
+            bytes = render.get();
+            cache.put(key, bytes);
         }
+        return bytes;
     }
 }
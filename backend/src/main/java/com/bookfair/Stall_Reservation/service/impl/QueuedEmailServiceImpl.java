@@ -0,0 +1,75 @@
+package com.bookfair.Stall_Reservation.service.impl;
+
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.enums.EmailType;
+import com.bookfair.Stall_Reservation.service.EmailOutboxService;
+import com.bookfair.Stall_Reservation.service.EmailService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * The EmailService seen by business code. Every send becomes an email_outbox row in the caller's
+ * transaction; {@link EmailServiceImpl} does the actual SMTP delivery from the outbox workers.
+ */
+@Service
+@Primary
+public class QueuedEmailServiceImpl implements EmailService {
+
+    private final EmailOutboxService outbox;
+
+    public QueuedEmailServiceImpl(EmailOutboxService outbox) {
+        this.outbox = outbox;
+    }
+
+    private void enqueue(EmailType type, Reservation reservation) {
+        outbox.enqueue(type, reservation.getId(), reservation.getVendor().getEmail(), Map.of());
+    }
+
+    @Override
+    public void sendBookingConfirmation(Reservation reservation) {
+        enqueue(EmailType.BOOKING_CONFIRMATION, reservation);
+    }
+
+    @Override
+    public void sendCancellationNotice(Reservation reservation) {
+        enqueue(EmailType.CANCELLATION_NOTICE, reservation);
+    }
+
+    @Override
+    public void sendRefundNotice(Reservation reservation) {
+        enqueue(EmailType.REFUND_NOTICE, reservation);
+    }
+
+    @Override
+    public void sendEventRemovedNotice(String vendorEmail, String eventName, String bookingId) {
+        outbox.enqueue(EmailType.EVENT_REMOVED_NOTICE, null, vendorEmail,
+                Map.of("eventName", eventName, "bookingId", bookingId));
+    }
+
+    @Override
+    public void sendPaymentConfirmation(Reservation reservation) {
+        enqueue(EmailType.PAYMENT_CONFIRMATION, reservation);
+    }
+
+    @Override
+    public void sendCancellationDeadlineReminder(Reservation reservation) {
+        enqueue(EmailType.CANCELLATION_DEADLINE_REMINDER, reservation);
+    }
+
+    @Override
+    public void sendEventReminder(Reservation reservation) {
+        enqueue(EmailType.EVENT_REMINDER, reservation);
+    }
+
+    @Override
+    public void sendVendorCancellationSuccess(Reservation reservation) {
+        enqueue(EmailType.VENDOR_CANCELLATION_SUCCESS, reservation);
+    }
+
+    @Override
+    public void sendAccountDeactivatedNotice(String email, String name) {
+        outbox.enqueue(EmailType.ACCOUNT_DEACTIVATED_NOTICE, null, email, Map.of("name", name));
+    }
+}
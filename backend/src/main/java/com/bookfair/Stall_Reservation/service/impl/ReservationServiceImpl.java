@@ -1,82 +1,143 @@
 package com.bookfair.Stall_Reservation.service.impl;
 
+import com.bookfair.Stall_Reservation.booking.BookingIdGenerator;
+import com.bookfair.Stall_Reservation.booking.DoubleBookingGuard;
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
 import com.bookfair.Stall_Reservation.config.AppProperties;
 import com.bookfair.Stall_Reservation.entity.*;
 import com.bookfair.Stall_Reservation.enums.*;
 import com.bookfair.Stall_Reservation.service.EmailService;
-import com.bookfair.Stall_Reservation.service.QrCodeService;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import com.bookfair.Stall_Reservation.booking.AfterCommit;
 import com.bookfair.Stall_Reservation.repository.*;
 import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.dto.reservation.PendingBooking;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
 import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
 import com.bookfair.Stall_Reservation.service.ReservationService;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class ReservationServiceImpl implements ReservationService {
 
+    private static final int MAX_BULK_SIZE = 500;
+
     private final EventRepository eventRepository;
     private final StallRepository stallRepository;
     private final ReservationRepository reservationRepository;
-    private final ReservationStallRepository reservationStallRepository;
-    private final ReservationGenreRepository reservationGenreRepository;
     private final GenreRepository genreRepository;
     private final UserRepository userRepository;
     private final PaymentRepository paymentRepository;
-    private final QrCodeService qrCodeService;
     private final EmailService emailService;
     private final AppProperties appProperties;
     private final ApplicationEventPublisher eventPublisher;
+    private final StallOccupancyIndex occupancyIndex;
+    private final StallHoldService stallHoldService;
+    private final BookingIdGenerator bookingIdGenerator;
+    private final ReservationStallRepository reservationStallRepository;
+    private final ReservationLogRepository reservationLogRepository;
+    private final DoubleBookingGuard doubleBookingGuard;
+    private final TransactionTemplate transactionTemplate;
 
     public ReservationServiceImpl(EventRepository eventRepository, StallRepository stallRepository,
                                   ReservationRepository reservationRepository,
-                                  ReservationStallRepository reservationStallRepository,
-                                  ReservationGenreRepository reservationGenreRepository,
                                   GenreRepository genreRepository, UserRepository userRepository,
-                                  PaymentRepository paymentRepository, QrCodeService qrCodeService,
+                                  PaymentRepository paymentRepository,
                                   EmailService emailService, AppProperties appProperties,
-                                  ApplicationEventPublisher eventPublisher) {
+                                  ApplicationEventPublisher eventPublisher,
+                                  StallOccupancyIndex occupancyIndex,
+                                  StallHoldService stallHoldService,
+                                  BookingIdGenerator bookingIdGenerator,
+                                  ReservationStallRepository reservationStallRepository,
+                                  ReservationLogRepository reservationLogRepository,
+                                  DoubleBookingGuard doubleBookingGuard,
+                                  PlatformTransactionManager transactionManager) {
         this.eventRepository = eventRepository;
         this.stallRepository = stallRepository;
         this.reservationRepository = reservationRepository;
-        this.reservationStallRepository = reservationStallRepository;
-        this.reservationGenreRepository = reservationGenreRepository;
         this.genreRepository = genreRepository;
         this.userRepository = userRepository;
         this.paymentRepository = paymentRepository;
-        this.qrCodeService = qrCodeService;
         this.emailService = emailService;
         this.appProperties = appProperties;
         this.eventPublisher = eventPublisher;
+        this.occupancyIndex = occupancyIndex;
+        this.stallHoldService = stallHoldService;
+        this.bookingIdGenerator = bookingIdGenerator;
+        this.reservationStallRepository = reservationStallRepository;
+        this.reservationLogRepository = reservationLogRepository;
+        this.doubleBookingGuard = doubleBookingGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(appProperties.getBooking().getWriteTimeoutSeconds());
     }
 
+    // Each attempt is its own transaction, so one that lost a deadlock can be run again from the start
     @Override
-    @Transactional
     public Reservation createPendingReservation(CreateBookingRequest request, Long vendorId) {
         int maxStalls = appProperties.getBooking().getMaxStallsPerBooking();
         if (request.getStallIds().size() > maxStalls) {
             throw new IllegalArgumentException("Maximum " + maxStalls + " stalls per booking.");
         }
+        // Most losers of a race for a hot stall stop here, before any query or lock
+        for (Long stallId : request.getStallIds()) {
+            if (occupancyIndex.isBooked(request.getEventId(), stallId))
+                throw new IllegalStateException("Some of the selected stalls are already booked.");
+        }
+        int retries = appProperties.getBooking().getDeadlockRetries();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> createPending(request, vendorId));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= retries)
+                    throw new ThrottledException("These stalls are in high demand right now. Please try again.", 1);
+                doubleBookingGuard.recordRetry();
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20) << attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ThrottledException("Booking was interrupted. Please try again.", 1);
+        }
+    }
+
+    private Reservation createPending(CreateBookingRequest request, Long vendorId) {
+        doubleBookingGuard.lock(vendorId, request.getStallIds());
 
         Event event = eventRepository.findById(request.getEventId())
                 .orElseThrow(() -> new IllegalArgumentException("Event not found"));
         User vendor = userRepository.findById(vendorId)
                 .orElseThrow(() -> new IllegalArgumentException("Vendor not found"));
-
-        int daysNoBooking = appProperties.getBooking().getDaysBeforeEventNoBooking();
-        LocalDate eventDate = event.getEventDate().toLocalDate();
-        LocalDate cutoff = eventDate.minusDays(daysNoBooking);
-        if (LocalDate.now().isAfter(cutoff) || !LocalDate.now().isBefore(eventDate)) {
-            throw new IllegalStateException("Booking is not allowed within " + daysNoBooking + " days of the event.");
-        }
+        checkBookingWindow(event);
 
         // Check if vendor already has an active reservation for this event
         boolean exists = reservationRepository.existsByVendorIdAndEventIdAndStatusIn(
@@ -89,6 +150,143 @@ public class ReservationServiceImpl implements ReservationService {
         if (stalls.size() != request.getStallIds().size()) {
             throw new IllegalArgumentException("Some stalls not found.");
         }
+        checkStalls(event, stalls, vendorId, stallId -> occupancyIndex.isBooked(event.getId(), stallId));
+
+        List<Genre> genres = request.getGenreIds() == null || request.getGenreIds().isEmpty()
+                ? List.of() : genreRepository.findAllById(request.getGenreIds());
+        Reservation reservation = newReservation(event, vendor, stalls, genres, request);
+        reservationRepository.save(reservation);
+        doubleBookingGuard.claim(reservation);
+        paymentRepository.save(newPayment(reservation));
+
+        occupancyIndex.markBooked(event.getId(), request.getStallIds());
+        AfterCommit.run(() -> stallHoldService.releaseHold(event.getId(), vendorId));
+
+        // Notify vendor of pending reservation (queued, delivered after commit)
+        emailService.sendBookingConfirmation(reservation);
+
+        eventPublisher.publishEvent(new StallBookingEvent(this, request.getEventId()));
+
+        return reservation;
+    }
+
+    // The caller has already put the bookings in arrival order and they are all for the same event
+    @Override
+    public void createPendingReservations(List<PendingBooking> bookings) {
+        if (bookings.isEmpty())
+            return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> createPendingGroup(bookings));
+            return;
+        } catch (RuntimeException e) {
+            // Something written outside the group (another node's claim, a deadlock) rolled all of it
+            // back; book them one at a time instead so only the real loser fails
+        }
+        for (PendingBooking booking : bookings) {
+            booking.setReservation(null);
+            booking.setError(null);
+            try {
+                booking.setReservation(createPendingReservation(booking.getRequest(), booking.getVendorId()));
+            } catch (RuntimeException e) {
+                booking.setError(e);
+            }
+        }
+    }
+
+    // One read of the event, vendors, stalls and occupancy for the whole group, then one batched write
+    private void createPendingGroup(List<PendingBooking> bookings) {
+        Long eventId = bookings.get(0).getRequest().getEventId();
+        Set<Long> vendorIds = new HashSet<>();
+        Set<Long> stallIds = new HashSet<>();
+        Set<Long> genreIds = new HashSet<>();
+        for (PendingBooking booking : bookings) {
+            vendorIds.add(booking.getVendorId());
+            stallIds.addAll(booking.getRequest().getStallIds());
+            if (booking.getRequest().getGenreIds() != null)
+                genreIds.addAll(booking.getRequest().getGenreIds());
+        }
+        Set<Long> taken = new HashSet<>(doubleBookingGuard.lockAll(vendorIds, stallIds));
+
+        Event event = eventRepository.findById(eventId).orElse(null);
+        try {
+            if (event == null)
+                throw new IllegalArgumentException("Event not found");
+            checkBookingWindow(event);
+        } catch (RuntimeException e) {
+            bookings.forEach(booking -> booking.setError(e));
+            return;
+        }
+        Map<Long, User> vendors = userRepository.findAllById(vendorIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Stall> stalls = stallRepository.findAllById(stallIds).stream()
+                .collect(Collectors.toMap(Stall::getId, Function.identity()));
+        Map<Long, Genre> genres = genreIds.isEmpty() ? Map.of() : genreRepository.findAllById(genreIds).stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        taken.addAll(occupancyIndex.getBookedStallIds(eventId));
+        Set<Long> bookedVendors = new HashSet<>(reservationRepository.findActiveVendorIdsByEventId(eventId));
+
+        int maxStalls = appProperties.getBooking().getMaxStallsPerBooking();
+        List<PendingBooking> accepted = new ArrayList<>();
+        List<Reservation> reservations = new ArrayList<>();
+        for (PendingBooking booking : bookings) {
+            CreateBookingRequest request = booking.getRequest();
+            try {
+                if (request.getStallIds().size() > maxStalls)
+                    throw new IllegalArgumentException("Maximum " + maxStalls + " stalls per booking.");
+                User vendor = vendors.get(booking.getVendorId());
+                if (vendor == null)
+                    throw new IllegalArgumentException("Vendor not found");
+                if (bookedVendors.contains(vendor.getId()))
+                    throw new IllegalStateException("You already have an active reservation for this event.");
+                List<Stall> requested = request.getStallIds().stream().map(stalls::get).toList();
+                if (requested.contains(null) || new HashSet<>(requested).size() != requested.size())
+                    throw new IllegalArgumentException("Some stalls not found.");
+                checkStalls(event, requested, vendor.getId(), taken::contains);
+                List<Genre> requestedGenres = request.getGenreIds() == null ? List.of()
+                        : request.getGenreIds().stream().map(genres::get).filter(Objects::nonNull).toList();
+
+                // Later bookings in the group see this one as already made
+                taken.addAll(request.getStallIds());
+                bookedVendors.add(vendor.getId());
+                reservations.add(newReservation(event, vendor, requested, requestedGenres, request));
+                accepted.add(booking);
+            } catch (RuntimeException e) {
+                booking.setError(e);
+            }
+        }
+        if (reservations.isEmpty())
+            return;
+
+        reservationRepository.saveAll(reservations);
+        doubleBookingGuard.claimAll(reservations);
+        paymentRepository.saveAll(reservations.stream().map(this::newPayment).toList());
+
+        for (int i = 0; i < accepted.size(); i++) {
+            PendingBooking booking = accepted.get(i);
+            Reservation reservation = reservations.get(i);
+            occupancyIndex.markBooked(eventId, booking.getRequest().getStallIds());
+            AfterCommit.run(() -> stallHoldService.releaseHold(eventId, booking.getVendorId()));
+            emailService.sendBookingConfirmation(reservation);
+            booking.setReservation(reservation);
+        }
+        eventPublisher.publishEvent(new StallBookingEvent(this, eventId));
+    }
+
+    private void checkBookingWindow(Event event) {
+        LocalDateTime now = LocalDateTime.now();
+        if (event.getOnSaleAt() != null && now.isBefore(event.getOnSaleAt())) {
+            throw new ThrottledException("Booking for this event opens at " + event.getOnSaleAt() + ".",
+                    Math.max(1, Duration.between(now, event.getOnSaleAt()).getSeconds()));
+        }
+        int daysNoBooking = appProperties.getBooking().getDaysBeforeEventNoBooking();
+        LocalDate eventDate = event.getEventDate().toLocalDate();
+        LocalDate cutoff = eventDate.minusDays(daysNoBooking);
+        if (LocalDate.now().isAfter(cutoff) || !LocalDate.now().isBefore(eventDate)) {
+            throw new IllegalStateException("Booking is not allowed within " + daysNoBooking + " days of the event.");
+        }
+    }
+
+    private void checkStalls(Event event, List<Stall> stalls, Long vendorId, Predicate<Long> booked) {
         for (Stall s : stalls) {
             if (s.isBlocked())
                 throw new IllegalStateException("Stall " + s.getStallCode() + " is blocked.");
@@ -97,19 +295,24 @@ public class ReservationServiceImpl implements ReservationService {
             }
         }
 
-        List<Long> alreadyBooked = reservationStallRepository.findBookedStallIdsByEventId(event.getId());
         for (Stall s : stalls) {
-            if (alreadyBooked.contains(s.getId())) {
+            if (booked.test(s.getId())) {
                 throw new IllegalStateException("Stall " + s.getStallCode() + " is already booked.");
             }
+            if (stallHoldService.isHeldByOther(event.getId(), s.getId(), vendorId)) {
+                throw new IllegalStateException("Stall " + s.getStallCode() + " is being booked by another vendor.");
+            }
         }
+    }
 
+    private Reservation newReservation(Event event, User vendor, List<Stall> stalls, List<Genre> genres,
+                                       CreateBookingRequest request) {
         BigDecimal total = stalls.stream().map(Stall::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
         int advancePct = appProperties.getBooking().getAdvancePercent();
         BigDecimal advance = total
                 .multiply(BigDecimal.valueOf(advancePct).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
 
-        String bookingId = "BF-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        String bookingId = bookingIdGenerator.nextId();
         Reservation reservation = new Reservation();
         reservation.setBookingId(bookingId);
         reservation.setEvent(event);
@@ -120,7 +323,7 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.setStallDescription(request.getStallDescription());
         reservation.setQrCodeValue(bookingId);
         int cancelDays = appProperties.getCancellation().getAllowedDaysBefore();
-        reservation.setCancellationDeadline(eventDate.minusDays(cancelDays));
+        reservation.setCancellationDeadline(event.getEventDate().toLocalDate().minusDays(cancelDays));
 
         reservation.setPaymentMethod(PaymentMethod.valueOf(request.getPaymentMethod())); // Enum validation handled by
 
@@ -129,41 +332,29 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.setBankName(request.getBankName());
         reservation.setAddress(request.getAddress());
 
-        reservationRepository.save(reservation);
-
+        // Line items cascade from the reservation and are batch-inserted in one flush
         for (Stall stall : stalls) {
             ReservationStall rs = new ReservationStall();
             rs.setReservation(reservation);
             rs.setStall(stall);
             reservation.getStalls().add(rs);
-            reservationStallRepository.save(rs);
         }
 
-        if (request.getGenreIds() != null && !request.getGenreIds().isEmpty()) {
-            List<Genre> genres = genreRepository.findAllById(request.getGenreIds());
-            for (Genre g : genres) {
-                ReservationGenre rg = new ReservationGenre();
-                rg.setReservation(reservation);
-                rg.setGenre(g);
-                reservation.getGenres().add(rg);
-                reservationGenreRepository.save(rg);
-            }
+        for (Genre g : genres) {
+            ReservationGenre rg = new ReservationGenre();
+            rg.setReservation(reservation);
+            rg.setGenre(g);
+            reservation.getGenres().add(rg);
         }
+        return reservation;
+    }
 
+    private Payment newPayment(Reservation reservation) {
         Payment payment = new Payment();
         payment.setReservation(reservation);
-        payment.setAmount(advance);
+        payment.setAmount(reservation.getAdvanceAmount());
         payment.setStatus(PaymentStatus.PENDING);
-        paymentRepository.save(payment);
-
-        // Notify vendor immediately of pending reservation
-        byte[] qrPng = qrCodeService.generatePng(reservation.getBookingId(), 256);
-
-        emailService.sendBookingConfirmation(reservation, qrPng);
-
-        eventPublisher.publishEvent(new StallBookingEvent(this, request.getEventId()));
-
-        return reservation;
+        return payment;
     }
 
     @Override
@@ -177,22 +368,25 @@ public class ReservationServiceImpl implements ReservationService {
         if (reservation.getStatus() == ReservationStatus.SUCCESS) {
             return; // Already approved
         }
+        // A cancelled, refunded or removed reservation has given up its stalls, which may be booked again by now
+        if (reservation.getStatus() != ReservationStatus.PENDING) {
+            throw new IllegalStateException("Cannot approve a " + reservation.getStatus().name().toLowerCase() + " reservation");
+        }
 
+        LocalDateTime now = LocalDateTime.now();
+        if (reservationRepository.transitionStatus(List.of(reservationId), EnumSet.of(ReservationStatus.PENDING),
+                ReservationStatus.SUCCESS, now) != 1) {
+            throw new IllegalStateException("The reservation was modified concurrently. Please retry.");
+        }
         reservation.setStatus(ReservationStatus.SUCCESS);
         payment.setStatus(PaymentStatus.COMPLETED);
-        payment.setPaidAt(LocalDateTime.now());
+        payment.setPaidAt(now);
         paymentRepository.save(payment);
 
-        reservationRepository.save(reservation);
-
-        // Re-send confirmation or just status update? Prompt says "Send confirmation email"
-        // We can regenerate QR or just send the email.
-        byte[] qrPng = qrCodeService.generatePng(reservation.getBookingId(), 256);
-
         reservation.getVendor().getEmail();
         reservation.getEvent().getName();
 
-        emailService.sendPaymentConfirmation(reservation, qrPng);
+        emailService.sendPaymentConfirmation(reservation);
 
         eventPublisher.publishEvent(
                 new StallBookingEvent(this, reservation.getEvent() != null ? reservation.getEvent().getId() : 0L));
@@ -208,6 +402,7 @@ public class ReservationServiceImpl implements ReservationService {
             return;
         }
 
+        ReservationStatus previous = reservation.getStatus();
         reservation.setStatus(ReservationStatus.REFUNDED);
         reservationRepository.save(reservation);
 
@@ -224,6 +419,7 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.getLogs().add(new ReservationLog(reservation, "REFUNDED", "Reservation refunded by Admin."));
         reservationRepository.save(reservation);
 
+        releaseStalls(reservation, previous);
         emailService.sendRefundNotice(reservation);
         eventPublisher.publishEvent(new StallBookingEvent(this, reservation.getEvent().getId()));
     }
@@ -238,12 +434,14 @@ public class ReservationServiceImpl implements ReservationService {
             return;
         }
 
+        ReservationStatus previous = reservation.getStatus();
         reservation.setStatus(ReservationStatus.CANCELLED);
         reservationRepository.save(reservation);
 
         reservation.getVendor().getEmail();
         reservation.getEvent().getName();
 
+        releaseStalls(reservation, previous);
         emailService.sendCancellationNotice(reservation);
         eventPublisher.publishEvent(new StallBookingEvent(this, reservation.getEvent().getId()));
     }
@@ -259,6 +457,7 @@ public class ReservationServiceImpl implements ReservationService {
             return;
         }
 
+        ReservationStatus previous = reservation.getStatus();
         reservation.setStatus(ReservationStatus.REFUNDED);
         reservationRepository.save(reservation);
 
@@ -272,10 +471,135 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.getVendor().getEmail();
         reservation.getEvent().getName();
 
+        releaseStalls(reservation, previous);
         emailService.sendRefundNotice(reservation);
         eventPublisher.publishEvent(new StallBookingEvent(this, reservation.getEvent().getId()));
     }
 
+    @Override
+    @Transactional
+    public Map<String, Object> bulkTransition(ReservationAction action, List<Long> reservationIds) {
+        Set<Long> ids = new LinkedHashSet<>(reservationIds);
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " reservations can be updated at once");
+        }
+
+        ReservationStatus target;
+        Set<ReservationStatus> from;
+        switch (action) {
+            case APPROVE -> { target = ReservationStatus.SUCCESS; from = EnumSet.of(ReservationStatus.PENDING); }
+            case REJECT -> { target = ReservationStatus.CANCELLED; from = EnumSet.of(ReservationStatus.PENDING, ReservationStatus.SUCCESS); }
+            default -> { target = ReservationStatus.REFUNDED; from = EnumSet.complementOf(EnumSet.of(ReservationStatus.REFUNDED)); }
+        }
+
+        Map<Long, Reservation> found = reservationRepository.findAllWithVendorAndEventByIdIn(ids).stream()
+                .collect(Collectors.toMap(Reservation::getId, Function.identity()));
+        Set<Long> withPayment = action == ReservationAction.APPROVE && !found.isEmpty()
+                ? new HashSet<>(paymentRepository.findReservationIdsWithPayment(found.keySet()))
+                : Set.of();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<Reservation> toUpdate = new ArrayList<>();
+        for (Long id : ids) {
+            Reservation r = found.get(id);
+            String outcome;
+            String message = "";
+            if (r == null) {
+                outcome = "FAILED";
+                message = "Reservation not found";
+            } else if (r.getStatus() == target) {
+                outcome = "UNCHANGED";
+            } else if (!from.contains(r.getStatus())) {
+                outcome = "FAILED";
+                message = "Cannot " + action.name().toLowerCase() + " a " + r.getStatus().name().toLowerCase() + " reservation";
+            } else if (action == ReservationAction.APPROVE && !withPayment.contains(id)) {
+                outcome = "FAILED";
+                message = "Payment not found";
+            } else {
+                outcome = "UPDATED";
+                toUpdate.add(r);
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("reservationId", id);
+            item.put("bookingId", r != null ? r.getBookingId() : "");
+            item.put("outcome", outcome);
+            item.put("message", message);
+            results.add(item);
+        }
+
+        if (!toUpdate.isEmpty()) {
+            applyTransition(action, target, from, toUpdate);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("action", action.name());
+        response.put("updated", toUpdate.size());
+        response.put("results", results);
+        return response;
+    }
+
+    private void applyTransition(ReservationAction action, ReservationStatus target, Set<ReservationStatus> from,
+                                 List<Reservation> reservations) {
+        List<Long> ids = reservations.stream().map(Reservation::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        int moved = reservationRepository.transitionStatus(ids, from, target, now);
+        if (moved != ids.size()) {
+            // Someone else changed one of them since it was read; roll back rather than half-apply
+            throw new IllegalStateException("Some reservations were modified concurrently. Please retry.");
+        }
+
+        if (action == ReservationAction.APPROVE) {
+            paymentRepository.markCompleted(ids, now);
+        } else {
+            if (action == ReservationAction.REFUND) {
+                paymentRepository.markRefunded(ids, now);
+                reservationLogRepository.saveAll(reservations.stream()
+                        .map(r -> new ReservationLog(r, "REFUNDED", "Reservation refunded by Admin."))
+                        .toList());
+            }
+            releaseStalls(reservations);
+        }
+
+        for (Reservation r : reservations) {
+            switch (action) {
+                case APPROVE -> emailService.sendPaymentConfirmation(r);
+                case REJECT -> emailService.sendCancellationNotice(r);
+                case REFUND -> emailService.sendRefundNotice(r);
+            }
+        }
+        reservations.stream().map(r -> r.getEvent().getId()).distinct()
+                .forEach(eventId -> eventPublisher.publishEvent(new StallBookingEvent(this, eventId)));
+    }
+
+    // Stalls of reservations that were still holding them, released per event
+    private void releaseStalls(List<Reservation> reservations) {
+        Map<Long, Long> eventByReservation = reservations.stream()
+                .filter(r -> holdsStalls(r.getStatus()))
+                .collect(Collectors.toMap(Reservation::getId, r -> r.getEvent().getId()));
+        if (eventByReservation.isEmpty())
+            return;
+        doubleBookingGuard.release(eventByReservation.keySet());
+        Map<Long, List<Long>> stallsByEvent = new HashMap<>();
+        for (Object[] row : reservationStallRepository.findStallIdsByReservationIdIn(eventByReservation.keySet())) {
+            stallsByEvent.computeIfAbsent(eventByReservation.get((Long) row[0]), k -> new ArrayList<>())
+                    .add((Long) row[1]);
+        }
+        stallsByEvent.forEach(occupancyIndex::release);
+    }
+
+    // A reservation that had already let its stalls go may share them with a newer booking by now
+    private void releaseStalls(Reservation reservation, ReservationStatus previous) {
+        if (!holdsStalls(previous))
+            return;
+        doubleBookingGuard.release(List.of(reservation.getId()));
+        occupancyIndex.release(reservation.getEvent().getId(),
+                reservation.getStalls().stream().map(rs -> rs.getStall().getId()).toList());
+    }
+
+    private static boolean holdsStalls(ReservationStatus status) {
+        return status == ReservationStatus.PENDING || status == ReservationStatus.SUCCESS;
+    }
+
     @Override
     public List<Reservation> getReservationsForVendor(Long vendorId) {
         User vendor = userRepository.findById(vendorId)
@@ -295,6 +619,7 @@ public class ReservationServiceImpl implements ReservationService {
             throw new IllegalStateException("Cancellation deadline has passed.");
         }
 
+        ReservationStatus previous = reservation.getStatus();
         reservation.setStatus(ReservationStatus.CANCELLED);
         reservationRepository.save(reservation);
 
@@ -311,13 +636,22 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.getLogs().add(new ReservationLog(reservation, "CANCELLED", "Reservation cancelled by Vendor."));
         reservationRepository.save(reservation);
 
+        releaseStalls(reservation, previous);
         emailService.sendVendorCancellationSuccess(reservation);
         eventPublisher.publishEvent(new StallBookingEvent(this, reservation.getEvent().getId()));
     }
 
     @Override
     public Reservation getByBookingId(String bookingId) {
-        return reservationRepository.findByBookingId(bookingId).orElse(null);
+        // Typos fail the check character, so they never reach the database
+        if (!BookingIdGenerator.isWellFormed(bookingId))
+            return null;
+        return reservationRepository.findByBookingId(BookingIdGenerator.normalize(bookingId)).orElse(null);
+    }
+
+    @Override
+    public Reservation getById(Long reservationId) {
+        return reservationRepository.findById(reservationId).orElse(null);
     }
 
     @Override
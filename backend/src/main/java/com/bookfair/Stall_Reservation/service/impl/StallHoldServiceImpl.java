@@ -0,0 +1,303 @@
+package com.bookfair.Stall_Reservation.service.impl;
+
+import com.bookfair.Stall_Reservation.booking.StallOccupancyIndex;
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
+import com.bookfair.Stall_Reservation.dto.event.StallHoldEvent;
+import com.bookfair.Stall_Reservation.entity.Stall;
+import com.bookfair.Stall_Reservation.enums.ReservationStatus;
+import com.bookfair.Stall_Reservation.repository.ReservationRepository;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds live in memory. With a relay broker every placement and release is shared over the cluster
+ * bus and each node expires holds on its own, so all nodes enforce the same holds; if two nodes
+ * grant a stall at the same moment, every node keeps the hold that was placed first.
+ * <p>
+ * A vendor can renew a hold, but not past {@code app.booking.hold-max-lifetime-seconds} after the
+ * first one. Releasing and placing again within a TTL continues the same run, so a released hold
+ * cannot be used to start the clock over.
+ */
+@Service
+public class StallHoldServiceImpl implements StallHoldService {
+
+    private final StallRepository stallRepository;
+    private final ReservationRepository reservationRepository;
+    private final StallOccupancyIndex occupancyIndex;
+    private final AppProperties appProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // eventId -> stallId -> hold; writers lock the per-event map, readers do not
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Hold>> holdsByEvent = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Hold>> holdsByVendor = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiries = new DelayQueue<>();
+    // Holds ended within the last TTL, by vendor and event, for their start time
+    private final ConcurrentHashMap<VendorEvent, Ended> recentlyEnded = new ConcurrentHashMap<>();
+    private Thread expiryThread;
+
+    public StallHoldServiceImpl(StallRepository stallRepository, ReservationRepository reservationRepository,
+                                StallOccupancyIndex occupancyIndex, AppProperties appProperties,
+                                ApplicationEventPublisher eventPublisher) {
+        this.stallRepository = stallRepository;
+        this.reservationRepository = reservationRepository;
+        this.occupancyIndex = occupancyIndex;
+        this.appProperties = appProperties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        expiryThread = new Thread(this::expireLoop, "stall-hold-expiry");
+        expiryThread.setDaemon(true);
+        expiryThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        expiryThread.interrupt();
+    }
+
+    @Override
+    public Map<String, Object> placeHold(Long eventId, List<Long> stallIds, Long vendorId) {
+        int maxStalls = appProperties.getBooking().getMaxStallsPerBooking();
+        if (stallIds == null || stallIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one stall must be selected");
+        }
+        if (stallIds.size() > maxStalls) {
+            throw new IllegalArgumentException("Maximum " + maxStalls + " stalls per booking.");
+        }
+        // Such a vendor could not book these stalls, only keep them from everyone else
+        if (reservationRepository.existsByVendorIdAndEventIdAndStatusIn(
+                vendorId, eventId, List.of(ReservationStatus.PENDING, ReservationStatus.SUCCESS))) {
+            throw new IllegalStateException("You already have an active reservation for this event.");
+        }
+        List<Stall> stalls = stallRepository.findAllById(stallIds);
+        if (stalls.size() != stallIds.size()) {
+            throw new IllegalArgumentException("Some stalls not found.");
+        }
+        for (Stall s : stalls) {
+            if (!s.getEvent().getId().equals(eventId))
+                throw new IllegalArgumentException("All stalls must belong to this event.");
+            if (s.isBlocked())
+                throw new IllegalStateException("Stall " + s.getStallCode() + " is blocked.");
+        }
+
+        long ttlMillis = ttlMillis();
+        long maxLifetimeMillis = appProperties.getBooking().getHoldMaxLifetimeSeconds() * 1000L;
+        ConcurrentHashMap<Long, Hold> eventHolds = holdsByEvent.computeIfAbsent(eventId, id -> new ConcurrentHashMap<>());
+        Hold hold;
+        synchronized (eventHolds) {
+            for (Stall s : stalls) {
+                if (occupancyIndex.isBooked(eventId, s.getId()))
+                    throw new IllegalStateException("Stall " + s.getStallCode() + " is already booked.");
+                Hold existing = eventHolds.get(s.getId());
+                if (existing != null && !existing.vendorId.equals(vendorId) && !existing.isExpired())
+                    throw new IllegalStateException("Stall " + s.getStallCode() + " is being booked by another vendor.");
+            }
+            long now = System.currentTimeMillis();
+            long startedAt = startedAt(eventId, vendorId, now);
+            long endsAt = startedAt + maxLifetimeMillis;
+            if (now >= endsAt)
+                throw new IllegalStateException("Your hold on these stalls has run out. Please try again in a few minutes.");
+            hold = new Hold(eventId, vendorId, List.copyOf(stallIds), now, startedAt, Math.min(now + ttlMillis, endsAt));
+            install(eventHolds, hold);
+        }
+        eventPublisher.publishEvent(new StallHoldEvent(this, eventId, vendorId, hold.stallIds,
+                hold.placedAtMillis, hold.startedAtMillis, hold.expiresAtMillis));
+        eventPublisher.publishEvent(new StallBookingEvent(this, eventId));
+
+        return Map.of(
+                "eventId", eventId,
+                "stallIds", hold.stallIds,
+                "expiresAt", Instant.ofEpochMilli(hold.expiresAtMillis).toString());
+    }
+
+    @Override
+    public void releaseHold(Long eventId, Long vendorId) {
+        ConcurrentHashMap<Long, Hold> vendorHolds = holdsByVendor.get(vendorId);
+        Hold hold = vendorHolds != null ? vendorHolds.get(eventId) : null;
+        if (hold != null && remove(hold)) {
+            eventPublisher.publishEvent(StallHoldEvent.released(this, eventId, vendorId));
+            eventPublisher.publishEvent(new StallBookingEvent(this, eventId));
+        }
+    }
+
+    @Override
+    public boolean applyRemote(StallHoldEvent remote) {
+        Long eventId = remote.getEventId();
+        Long vendorId = remote.getVendorId();
+        if (remote.getStallIds().isEmpty()) {
+            ConcurrentHashMap<Long, Hold> vendorHolds = holdsByVendor.get(vendorId);
+            Hold hold = vendorHolds != null ? vendorHolds.get(eventId) : null;
+            return hold != null && remove(hold);
+        }
+        Hold hold = new Hold(eventId, vendorId, List.copyOf(remote.getStallIds()), remote.getPlacedAtMillis(),
+                remote.getStartedAtMillis(), remote.getExpiresAtMillis());
+        if (hold.isExpired())
+            return false;
+        ConcurrentHashMap<Long, Hold> eventHolds = holdsByEvent.computeIfAbsent(eventId, id -> new ConcurrentHashMap<>());
+        synchronized (eventHolds) {
+            install(eventHolds, hold);
+        }
+        return true;
+    }
+
+    @Override
+    public List<Long> getHeldStallIds(Long eventId) {
+        ConcurrentHashMap<Long, Hold> eventHolds = holdsByEvent.get(eventId);
+        if (eventHolds == null)
+            return List.of();
+        List<Long> held = new ArrayList<>();
+        eventHolds.forEach((stallId, hold) -> {
+            if (!hold.isExpired())
+                held.add(stallId);
+        });
+        return held;
+    }
+
+    @Override
+    public boolean isHeldByOther(Long eventId, Long stallId, Long vendorId) {
+        ConcurrentHashMap<Long, Hold> eventHolds = holdsByEvent.get(eventId);
+        Hold hold = eventHolds != null ? eventHolds.get(stallId) : null;
+        return hold != null && !hold.vendorId.equals(vendorId) && !hold.isExpired();
+    }
+
+    // Caller holds the event's lock. Replaces the vendor's hold; a stall held by someone else is only
+    // taken over if this hold was placed first, which a hold placed here has already checked
+    private void install(ConcurrentHashMap<Long, Hold> eventHolds, Hold hold) {
+        Hold previous = vendorHolds(hold.vendorId).put(hold.eventId, hold);
+        if (previous != null) {
+            removeEntries(eventHolds, previous);
+            expiries.remove(previous);
+        }
+        for (Long stallId : hold.stallIds) {
+            Hold existing = eventHolds.get(stallId);
+            if (existing == null || existing.isExpired() || existing.vendorId.equals(hold.vendorId)
+                    || hold.placedBefore(existing))
+                eventHolds.put(stallId, hold);
+        }
+        expiries.add(hold);
+    }
+
+    // Start of the vendor's current run of holds on the event: kept across renewals and short gaps
+    private long startedAt(Long eventId, Long vendorId, long now) {
+        Hold current = vendorHolds(vendorId).get(eventId);
+        if (current != null)
+            return current.startedAtMillis;
+        Ended ended = recentlyEnded.get(new VendorEvent(vendorId, eventId));
+        if (ended != null && now - ended.endedAtMillis() < ttlMillis())
+            return ended.startedAtMillis();
+        return now;
+    }
+
+    private boolean remove(Hold hold) {
+        ConcurrentHashMap<Long, Hold> eventHolds = holdsByEvent.get(hold.eventId);
+        if (eventHolds == null)
+            return false;
+        synchronized (eventHolds) {
+            if (!vendorHolds(hold.vendorId).remove(hold.eventId, hold))
+                return false;
+            removeEntries(eventHolds, hold);
+            expiries.remove(hold);
+            recentlyEnded.put(new VendorEvent(hold.vendorId, hold.eventId),
+                    new Ended(hold.startedAtMillis, System.currentTimeMillis()));
+            return true;
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictEnded() {
+        long cutoff = System.currentTimeMillis() - ttlMillis();
+        recentlyEnded.values().removeIf(e -> e.endedAtMillis() < cutoff);
+    }
+
+    private long ttlMillis() {
+        return appProperties.getBooking().getHoldTtlSeconds() * 1000L;
+    }
+
+    private static void removeEntries(ConcurrentHashMap<Long, Hold> eventHolds, Hold hold) {
+        for (Long stallId : hold.stallIds) {
+            eventHolds.remove(stallId, hold);
+        }
+    }
+
+    private ConcurrentHashMap<Long, Hold> vendorHolds(Long vendorId) {
+        return holdsByVendor.computeIfAbsent(vendorId, id -> new ConcurrentHashMap<>());
+    }
+
+    private void expireLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Hold hold = expiries.take();
+                if (remove(hold)) {
+                    eventPublisher.publishEvent(new StallBookingEvent(this, hold.eventId));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // Keep expiring other holds even if a listener fails
+            }
+        }
+    }
+
+    private record VendorEvent(Long vendorId, Long eventId) {
+    }
+
+    private record Ended(long startedAtMillis, long endedAtMillis) {
+    }
+
+    private static final class Hold implements Delayed {
+        private final Long eventId;
+        private final Long vendorId;
+        private final List<Long> stallIds;
+        private final long placedAtMillis;
+        private final long startedAtMillis;
+        private final long expiresAtMillis;
+
+        private Hold(Long eventId, Long vendorId, List<Long> stallIds, long placedAtMillis, long startedAtMillis,
+                     long expiresAtMillis) {
+            this.eventId = eventId;
+            this.vendorId = vendorId;
+            this.stallIds = stallIds;
+            this.placedAtMillis = placedAtMillis;
+            this.startedAtMillis = startedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+
+        // The same order on every node, so all of them keep the same hold when two collide
+        private boolean placedBefore(Hold other) {
+            if (placedAtMillis != other.placedAtMillis)
+                return placedAtMillis < other.placedAtMillis;
+            return vendorId < other.vendorId;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(expiresAtMillis, ((Hold) o).expiresAtMillis);
+        }
+    }
+}
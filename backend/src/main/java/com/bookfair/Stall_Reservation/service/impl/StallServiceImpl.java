@@ -1,8 +1,10 @@
 package com.bookfair.Stall_Reservation.service.impl;
 
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
 import com.bookfair.Stall_Reservation.entity.Stall;
 import com.bookfair.Stall_Reservation.repository.StallRepository;
 import com.bookfair.Stall_Reservation.service.StallService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,9 +14,11 @@ import java.util.List;
 public class StallServiceImpl implements StallService {
 
     private final StallRepository stallRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public StallServiceImpl(StallRepository stallRepository) {
+    public StallServiceImpl(StallRepository stallRepository, ApplicationEventPublisher eventPublisher) {
         this.stallRepository = stallRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -34,6 +38,8 @@ public class StallServiceImpl implements StallService {
         if (stall != null) {
             stall.setBlocked(blocked);
             stallRepository.save(stall);
+            eventPublisher.publishEvent(new StallBookingEvent(this, stall.getEvent().getId(),
+                    blocked ? List.of(stallId) : List.of(), blocked ? List.of() : List.of(stallId)));
         }
     }
 
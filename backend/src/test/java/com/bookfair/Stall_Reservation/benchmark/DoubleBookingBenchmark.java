@@ -0,0 +1,260 @@
+package com.bookfair.Stall_Reservation.benchmark;
+
+import com.bookfair.Stall_Reservation.booking.BookingEngine;
+import com.bookfair.Stall_Reservation.booking.DoubleBookingGuard;
+import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.entity.User;
+import com.bookfair.Stall_Reservation.enums.UserRole;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.repository.UserRepository;
+import com.bookfair.Stall_Reservation.service.EmailService;
+import com.bookfair.Stall_Reservation.service.EventService;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of vendors released at once on the same few hot stalls, once per conflict strategy and
+ * through the per-event actor engine with and without group commit.
+ * Each round uses a fresh event; every vendor asks for one to three of its ten hot stalls and one
+ * in ten also sends a second booking for the same event at the same moment. Reports throughput and
+ * how many attempts lost, then checks the database for a stall or vendor booked twice. Needs the
+ * MySQL database from application.properties; run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=DoubleBookingBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class DoubleBookingBenchmark {
+
+    private static final int VENDORS = 300;
+    private static final int HOT_STALLS = 10;
+    private static final int ROUNDS = 5;
+
+    @Nested
+    @SpringBootTest
+    @TestPropertySource(properties = "app.booking.conflict-strategy=claim")
+    class Claim extends Scenario {
+        @Test
+        void report() throws Exception {
+            run("claim");
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    @TestPropertySource(properties = "app.booking.conflict-strategy=lock")
+    class Lock extends Scenario {
+        @Test
+        void report() throws Exception {
+            run("lock");
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    @TestPropertySource(properties = {"app.booking.conflict-strategy=claim", "app.booking.engine=actor",
+            "app.booking.group-commit-max-size=1"})
+    class Actor extends Scenario {
+        @Test
+        void report() throws Exception {
+            run("claim + actor");
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    @TestPropertySource(properties = {"app.booking.conflict-strategy=claim", "app.booking.engine=actor"})
+    class GroupCommit extends Scenario {
+        @Test
+        void report() throws Exception {
+            run("claim + actor + group commit");
+        }
+    }
+
+    abstract static class Scenario {
+
+        @Autowired
+        EventService eventService;
+        @Autowired
+        ReservationService reservationService;
+        @Autowired
+        UserRepository userRepository;
+        @Autowired
+        StallRepository stallRepository;
+        @Autowired
+        DoubleBookingGuard doubleBookingGuard;
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+        @Autowired
+        ObjectProvider<BookingEngine> bookingEngine;
+        @MockBean
+        EmailService emailService;
+
+        void run(String label) throws Exception {
+            Long adminId = userRepository.findByRole(UserRole.ADMIN).get(0).getId();
+            List<Long> vendorIds = createVendors();
+            Random random = new Random(42);
+            AtomicInteger booked = new AtomicInteger();
+            AtomicInteger lost = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            long attempts = 0;
+            long elapsedNanos = 0;
+
+            ExecutorService clients = Executors.newFixedThreadPool(VENDORS + VENDORS / 10);
+            try {
+                for (int round = 0; round < ROUNDS; round++) {
+                    Long eventId = createEvent(adminId, label + " " + round);
+                    int bookedBefore = booked.get();
+                    List<Long> hot = stallRepository.findIdsByEventId(eventId).subList(0, HOT_STALLS);
+                    List<Runnable> bookings = new ArrayList<>();
+                    for (int v = 0; v < vendorIds.size(); v++) {
+                        Long vendorId = vendorIds.get(v);
+                        for (int copy = 0; copy < (v % 10 == 0 ? 2 : 1); copy++) {
+                            CreateBookingRequest request = request(eventId, pick(hot, random));
+                            bookings.add(() -> {
+                                try {
+                                    reservationService.createPendingReservation(request, vendorId);
+                                    booked.incrementAndGet();
+                                } catch (IllegalStateException | ThrottledException e) {
+                                    lost.incrementAndGet();
+                                } catch (RuntimeException e) {
+                                    failed.incrementAndGet();
+                                }
+                            });
+                        }
+                    }
+
+                    CountDownLatch ready = new CountDownLatch(bookings.size());
+                    CountDownLatch go = new CountDownLatch(1);
+                    CountDownLatch done = new CountDownLatch(bookings.size());
+                    for (Runnable booking : bookings) {
+                        clients.execute(() -> {
+                            ready.countDown();
+                            try {
+                                go.await();
+                                booking.run();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                done.countDown();
+                            }
+                        });
+                    }
+                    ready.await();
+                    long start = System.nanoTime();
+                    go.countDown();
+                    assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+                    elapsedNanos += System.nanoTime() - start;
+                    attempts += bookings.size();
+
+                    // Someone gets the hot stalls, and the database agrees with what the callers were told
+                    assertThat(booked.get()).isGreaterThan(bookedBefore);
+                    assertThat(activeReservations(eventId)).isEqualTo(booked.get() - bookedBefore);
+                    assertNoDoubleBooking(eventId);
+                }
+            } finally {
+                clients.shutdownNow();
+            }
+
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("[%s] %d attempts in %.2f s: %.0f attempts/s, %d booked, %d lost (%.1f%%), %d errors; %s%n",
+                    label, attempts, seconds, attempts / seconds, booked.get(), lost.get(),
+                    100.0 * lost.get() / attempts, failed.get(), stats());
+            assertThat(failed.get()).isZero();
+        }
+
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>(doubleBookingGuard.stats());
+            bookingEngine.ifAvailable(engine -> stats.putAll(engine.stats()));
+            return stats;
+        }
+
+        private int activeReservations(Long eventId) {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations "
+                    + "WHERE event_id = ? AND status IN ('PENDING', 'SUCCESS')", Integer.class, eventId);
+        }
+
+        private void assertNoDoubleBooking(Long eventId) {
+            Integer stallsTakenTwice = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM (SELECT rs.stall_id FROM reservation_stalls rs "
+                            + "JOIN reservations r ON r.id = rs.reservation_id "
+                            + "WHERE r.event_id = ? AND r.status IN ('PENDING', 'SUCCESS') "
+                            + "GROUP BY rs.stall_id HAVING COUNT(*) > 1) t", Integer.class, eventId);
+            Integer vendorsTwice = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM (SELECT r.vendor_id FROM reservations r "
+                            + "WHERE r.event_id = ? AND r.status IN ('PENDING', 'SUCCESS') "
+                            + "GROUP BY r.vendor_id HAVING COUNT(*) > 1) t", Integer.class, eventId);
+            assertThat(stallsTakenTwice).isZero();
+            assertThat(vendorsTwice).isZero();
+        }
+
+        private List<Long> createVendors() {
+            String batch = UUID.randomUUID().toString();
+            List<User> vendors = new ArrayList<>();
+            for (int i = 0; i < VENDORS; i++) {
+                User vendor = new User();
+                vendor.setName("Race Vendor " + i);
+                vendor.setEmail("race-" + batch + "-" + i + "@bookfair.com");
+                vendor.setPhone("0000000000");
+                vendor.setPasswordHash("-");
+                vendor.setRole(UserRole.VENDOR);
+                vendors.add(vendor);
+            }
+            return userRepository.saveAll(vendors).stream().map(User::getId).toList();
+        }
+
+        private Long createEvent(Long adminId, String label) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", "Race Fair " + label);
+            body.put("location", "Benchmark Hall");
+            body.put("eventDate", LocalDateTime.now().plusDays(30).withNano(0).toString());
+            List<Map<String, Object>> stalls = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                stalls.add(Map.of("stallCode", "R" + i, "size", "SMALL", "price", 1000));
+            }
+            body.put("stalls", stalls);
+            return eventService.createEvent(body, adminId);
+        }
+
+        private static List<Long> pick(List<Long> hot, Random random) {
+            List<Long> shuffled = new ArrayList<>(hot);
+            Collections.shuffle(shuffled, random);
+            return shuffled.subList(0, 1 + random.nextInt(3));
+        }
+
+        private static CreateBookingRequest request(Long eventId, List<Long> stallIds) {
+            CreateBookingRequest request = new CreateBookingRequest();
+            request.setEventId(eventId);
+            request.setStallIds(new ArrayList<>(stallIds));
+            request.setPaymentMethod("BANK_TRANSFER");
+            request.setAccountNumber("000");
+            request.setBankName("Bench Bank");
+            request.setAddress("Colombo");
+            return request;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.bookfair.Stall_Reservation.benchmark;
+
+import com.bookfair.Stall_Reservation.booking.BookingIdGenerator;
+import com.bookfair.Stall_Reservation.dto.reservation.CreateBookingRequest;
+import com.bookfair.Stall_Reservation.entity.Reservation;
+import com.bookfair.Stall_Reservation.entity.User;
+import com.bookfair.Stall_Reservation.enums.ReservationStatus;
+import com.bookfair.Stall_Reservation.enums.UserRole;
+import com.bookfair.Stall_Reservation.repository.GenreRepository;
+import com.bookfair.Stall_Reservation.repository.ReservationRepository;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.repository.UserRepository;
+import com.bookfair.Stall_Reservation.service.EmailService;
+import com.bookfair.Stall_Reservation.service.EventService;
+import com.bookfair.Stall_Reservation.service.ReservationService;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts JDBC round trips (statement executions and executeBatch calls) for one booking and for
+ * creating a 1,000-stall event, with Hibernate batching off ("before") and on ("after").
+ * Needs the MySQL database from application.properties; run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=InsertRoundTripBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class InsertRoundTripBenchmark {
+
+    private static final AtomicLong ROUND_TRIPS = new AtomicLong();
+
+    @Nested
+    @SpringBootTest
+    @TestPropertySource(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=0")
+    class Unbatched extends Scenario {
+        @Test
+        void report() {
+            run("unbatched");
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    class Batched extends Scenario {
+        @Test
+        void report() {
+            Result result = run("batched");
+            assertThat(result.eventTrips()).isLessThan(100);
+        }
+    }
+
+    record Result(long eventTrips, long bookingTrips) {
+    }
+
+    @Import(CountingDataSourceConfig.class)
+    abstract static class Scenario {
+
+        @Autowired
+        EventService eventService;
+        @Autowired
+        ReservationService reservationService;
+        @Autowired
+        UserRepository userRepository;
+        @Autowired
+        GenreRepository genreRepository;
+        @Autowired
+        StallRepository stallRepository;
+        @Autowired
+        ReservationRepository reservationRepository;
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+        @MockBean
+        EmailService emailService;
+
+        Result run(String label) {
+            Long adminId = userRepository.findByRole(UserRole.ADMIN).get(0).getId();
+            User vendor = new User();
+            vendor.setName("Benchmark Vendor");
+            vendor.setEmail("bench-" + UUID.randomUUID() + "@bookfair.com");
+            vendor.setPhone("0000000000");
+            vendor.setPasswordHash("-");
+            vendor.setRole(UserRole.VENDOR);
+            userRepository.save(vendor);
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", "Benchmark Fair " + label);
+            body.put("location", "Benchmark Hall");
+            body.put("eventDate", LocalDateTime.now().plusDays(30).withNano(0).toString());
+            List<Map<String, Object>> stalls = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                stalls.add(Map.of("stallCode", "B" + i, "size", "SMALL", "price", 1000));
+            }
+            body.put("stalls", stalls);
+
+            long before = ROUND_TRIPS.get();
+            Long eventId = eventService.createEvent(body, adminId);
+            long eventTrips = ROUND_TRIPS.get() - before;
+            List<Long> stallIds = stallRepository.findIdsByEventId(eventId);
+            assertThat(stallIds).hasSize(1000);
+
+            CreateBookingRequest request = new CreateBookingRequest();
+            request.setEventId(eventId);
+            request.setStallIds(stallIds.subList(0, 3));
+            request.setGenreIds(genreRepository.findAll().stream().limit(2).map(g -> g.getId()).toList());
+            request.setPaymentMethod("BANK_TRANSFER");
+            request.setAccountNumber("000");
+            request.setBankName("Bench Bank");
+            request.setAddress("Colombo");
+
+            before = ROUND_TRIPS.get();
+            Reservation created = reservationService.createPendingReservation(request, vendor.getId());
+            long bookingTrips = ROUND_TRIPS.get() - before;
+
+            // Batching must not change what is written
+            Reservation stored = reservationRepository.findByBookingId(created.getBookingId()).orElseThrow();
+            assertThat(BookingIdGenerator.isWellFormed(stored.getBookingId())).isTrue();
+            assertThat(stored.getStatus()).isEqualTo(ReservationStatus.PENDING);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation_stalls WHERE reservation_id = ?",
+                    Integer.class, stored.getId())).isEqualTo(3);
+
+            System.out.printf("[%s] 1,000-stall event creation: %d round trips; booking: %d round trips%n",
+                    label, eventTrips, bookingTrips);
+            return new Result(eventTrips, bookingTrips);
+        }
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? proxy(DataSource.class, ds) : bean;
+                }
+            };
+        }
+    }
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (p, method, args) -> {
+            if (target instanceof Statement && EXECUTE_METHODS.contains(method.getName()))
+                ROUND_TRIPS.incrementAndGet();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result instanceof Connection c && returnType == Connection.class)
+                return proxy(Connection.class, c);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(returnType))
+                return proxy((Class<Statement>) returnType, (Statement) result);
+            return result;
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.bookfair.Stall_Reservation.benchmark;
+
+import com.bookfair.Stall_Reservation.config.JwtProperties;
+import com.bookfair.Stall_Reservation.config.JwtUtil;
+import com.bookfair.Stall_Reservation.entity.User;
+import com.bookfair.Stall_Reservation.enums.UserRole;
+import com.bookfair.Stall_Reservation.security.JwtAuthFilter;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of authenticating one request in {@link JwtAuthFilter}: the previous three parses per
+ * request, one parse with the verified-token cache off, a cache hit, and a public GET that skips
+ * the filter. Run with {@code mvn test -Dbenchmarks=true -Dtest=JwtAuthFilterBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "BenchmarkSecretKeyThatIsLongEnoughForHmacSha256Signing!!";
+    private static final FilterChain NOOP = (request, response) -> {
+    };
+
+    private SecretKey key;
+    private String token;
+    private JwtAuthFilter uncachedFilter;
+    private JwtAuthFilter cachedFilter;
+    private MockHttpServletRequest authenticated;
+    private MockHttpServletRequest publicGet;
+
+    @Test
+    void run() throws Exception {
+        // Each timed path must still do its job: both filters authenticate, the public GET is left alone
+        setUp();
+        for (JwtAuthFilter f : new JwtAuthFilter[] { uncachedFilter, cachedFilter, cachedFilter }) {
+            Authentication auth = (Authentication) filter(f, authenticated);
+            assertThat(auth).isNotNull();
+            assertThat(auth.getPrincipal()).isEqualTo(42L);
+            assertThat(auth.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_VENDOR");
+        }
+        assertThat(filter(cachedFilter, publicGet)).isNull();
+
+        new Runner(new OptionsBuilder().include(JwtAuthFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("vendor@example.com");
+        user.setRole(UserRole.VENDOR);
+        token = jwtUtil(10_000).generateToken(user);
+
+        // Nothing revoked; the check is one map lookup either way
+        TokenRevocations revocations = new TokenRevocations(null, event -> {
+        }, properties(0));
+        uncachedFilter = new JwtAuthFilter(jwtUtil(0), revocations);
+        cachedFilter = new JwtAuthFilter(jwtUtil(10_000), revocations);
+
+        authenticated = new MockHttpServletRequest("GET", "/api/reservations/my");
+        authenticated.addHeader("Authorization", "Bearer " + token);
+        publicGet = new MockHttpServletRequest("GET", "/api/events/7");
+        // The filter's matchers look at the servlet path, which the mock leaves empty
+        publicGet.setServletPath("/api/events/7");
+        publicGet.addHeader("Authorization", "Bearer " + token);
+    }
+
+    // What the filter did before: validate, then read the role and the user id, each a full parse
+    @Benchmark
+    public void threeParses(Blackhole bh) {
+        bh.consume(claims());
+        bh.consume(claims().get("role", String.class));
+        bh.consume(claims().get("userId"));
+    }
+
+    @Benchmark
+    public Object filterUncached() throws Exception {
+        return filter(uncachedFilter, authenticated);
+    }
+
+    @Benchmark
+    public Object filterCached() throws Exception {
+        return filter(cachedFilter, authenticated);
+    }
+
+    @Benchmark
+    public Object filterPublicGet() throws Exception {
+        return filter(cachedFilter, publicGet);
+    }
+
+    private Claims claims() {
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    private static Object filter(JwtAuthFilter filter, MockHttpServletRequest request) throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), NOOP);
+        Object auth = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        // OncePerRequestFilter marks the request as filtered
+        request.clearAttributes();
+        return auth;
+    }
+
+    private static JwtUtil jwtUtil(int cacheSize) {
+        return new JwtUtil(properties(cacheSize));
+    }
+
+    private static JwtProperties properties(int cacheSize) {
+        JwtProperties props = new JwtProperties();
+        props.setSecret(SECRET);
+        props.setVerifiedCacheSize(cacheSize);
+        return props;
+    }
+}
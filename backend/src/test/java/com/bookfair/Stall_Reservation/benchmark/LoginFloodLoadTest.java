@@ -0,0 +1,238 @@
+package com.bookfair.Stall_Reservation.benchmark;
+
+import com.bookfair.Stall_Reservation.config.AppProperties;
+import com.bookfair.Stall_Reservation.config.JwtProperties;
+import com.bookfair.Stall_Reservation.config.JwtUtil;
+import com.bookfair.Stall_Reservation.entity.User;
+import com.bookfair.Stall_Reservation.enums.UserRole;
+import com.bookfair.Stall_Reservation.exception.AuthException;
+import com.bookfair.Stall_Reservation.exception.ThrottledException;
+import com.bookfair.Stall_Reservation.repository.UserRepository;
+import com.bookfair.Stall_Reservation.security.JwtAuthFilter;
+import com.bookfair.Stall_Reservation.security.PasswordHasher;
+import com.bookfair.Stall_Reservation.security.TokenRevocations;
+import com.bookfair.Stall_Reservation.service.impl.AuthServiceImpl;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Booking latency while a login flood arrives on the same request thread pool, with BCrypt on the
+ * request threads (as before) and on the {@link PasswordHasher} pool. Every flood attempt comes
+ * from a new address with a new-looking password, so the per-IP and per-email buckets do not
+ * help and only the hashing pool limits the damage.
+ * <p>
+ * Bookings arrive at a fixed rate and their latency is measured from the scheduled arrival, so a
+ * queue in front of the pool counts. A booking here is the JWT check plus a fixed amount of CPU
+ * work standing in for the service call, which needs MySQL. Run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=LoginFloodLoadTest}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class LoginFloodLoadTest {
+
+    private static final String SECRET = "BenchmarkSecretKeyThatIsLongEnoughForHmacSha256Signing!!";
+    private static final FilterChain NOOP = (request, response) -> {
+    };
+
+    // Tomcat's request threads, scaled down; the flood has more clients than the pool has threads
+    private static final int REQUEST_THREADS = 48;
+    private static final int FLOOD_CLIENTS = 64;
+    private static final int BOOKINGS_PER_SECOND = 200;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long WARMUP_MS = 5_000;
+    private static final long MEASURE_MS = 10_000;
+
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder();
+    private final String passwordHash = encoder.encode("correct horse battery staple");
+    private final JwtUtil jwtUtil = jwtUtil();
+    private final JwtAuthFilter filter = new JwtAuthFilter(jwtUtil,
+            new TokenRevocations(null, event -> {
+            }, jwtProperties()));
+    private final AtomicLong unauthenticatedBookings = new AtomicLong();
+
+    record Result(String name, long p50Micros, long p99Micros, long bookings, long logins) {
+        @Override
+        public String toString() {
+            return String.format("%-16s booking p50 %7d us  p99 %7d us  (%d bookings, %d logins answered)",
+                    name, p50Micros, p99Micros, bookings, logins);
+        }
+    }
+
+    @Test
+    void bookingLatencyUnderLoginFlood() throws Exception {
+        Result idle = run("no flood", null);
+        Result direct = run("hash on request", password -> encoder.matches(password, passwordHash));
+
+        AuthServiceImpl authService = authService(new PasswordHasher(encoder, new AppProperties()));
+        Result pooled = run("hash pool", password -> {
+            try {
+                authService.login("vendor@example.com", password, UserRole.VENDOR);
+            } catch (AuthException | ThrottledException expected) {
+                // Wrong password, or 429 from a full hashing queue
+            }
+        });
+
+        System.out.println(idle);
+        System.out.println(direct);
+        System.out.println(pooled);
+
+        // The flood did not get bookings turned away, only slowed down
+        assertThat(unauthenticatedBookings.get()).isZero();
+        assertThat(pooled.logins()).isPositive();
+        // The pool still tells a right password from a wrong one once the flood is over
+        assertThat(authService.login("vendor@example.com", "correct horse battery staple", UserRole.VENDOR))
+                .containsEntry("userId", 42L);
+        assertThatThrownBy(() -> authService.login("vendor@example.com", "wrong", UserRole.VENDOR))
+                .isInstanceOf(AuthException.class);
+
+        assertThat(pooled.p99Micros()).isLessThan(direct.p99Micros() / 10);
+    }
+
+    private Result run(String name, Consumer<String> login) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        ScheduledExecutorService arrivals = Executors.newSingleThreadScheduledExecutor();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean flooding = new AtomicBoolean(login != null);
+        AtomicLong logins = new AtomicLong();
+        MockHttpServletRequest booking = new MockHttpServletRequest("POST", "/api/reservations");
+        booking.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(vendor()));
+
+        // Each flood client waits for its answer before sending the next attempt, 429s included
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; login != null && i < FLOOD_CLIENTS; i++) {
+            Thread client = new Thread(() -> {
+                Semaphore answered = new Semaphore(0);
+                long attempt = 0;
+                while (flooding.get()) {
+                    String password = Thread.currentThread().getName() + "-" + attempt++;
+                    requestThreads.execute(() -> {
+                        login.accept(password);
+                        logins.incrementAndGet();
+                        answered.release();
+                    });
+                    answered.acquireUninterruptibly();
+                    // A network round trip before the next attempt
+                    LockSupport.parkNanos(ROUND_TRIP_NANOS);
+                }
+            }, "flood-" + i);
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / BOOKINGS_PER_SECOND;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(WARMUP_MS);
+        long measureTo = measureFrom + TimeUnit.MILLISECONDS.toNanos(MEASURE_MS);
+        arrivals.scheduleAtFixedRate(() -> {
+            long due = start + ((System.nanoTime() - start) / periodNanos) * periodNanos;
+            requestThreads.execute(() -> {
+                book(booking);
+                if (due >= measureFrom && due < measureTo)
+                    latencies.add(System.nanoTime() - due);
+            });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(WARMUP_MS);
+        logins.set(0);
+        Thread.sleep(MEASURE_MS);
+        long answeredLogins = logins.get();
+
+        // Bookings due in the window that are still queued are waited for, not dropped
+        arrivals.shutdownNow();
+        flooding.set(false);
+        requestThreads.shutdown();
+        requestThreads.awaitTermination(60, TimeUnit.SECONDS);
+        for (Thread client : clients)
+            client.interrupt();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(name, percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.size(), answeredLogins);
+    }
+
+    private void book(MockHttpServletRequest template) {
+        try {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", template.getRequestURI());
+            request.addHeader("Authorization", template.getHeader("Authorization"));
+            filter.doFilter(request, new MockHttpServletResponse(), NOOP);
+            if (SecurityContextHolder.getContext().getAuthentication() == null)
+                unauthenticatedBookings.incrementAndGet();
+            SecurityContextHolder.clearContext();
+            // Stand-in for the reservation service: about as much CPU as a few token checks
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] block = new byte[16 * 1024];
+            for (int i = 0; i < 8; i++)
+                block[i] = digest.digest(block)[0];
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AuthServiceImpl authService(PasswordHasher hasher) {
+        User user = vendor();
+        user.setPasswordHash(passwordHash);
+        UserRepository users = mock(UserRepository.class, withSettings().stubOnly());
+        when(users.findByEmail(anyString())).thenReturn(Optional.of(user));
+        return new AuthServiceImpl(users, hasher, jwtUtil,
+                new TokenRevocations(users, event -> {
+                }, jwtProperties()),
+                mock(PlatformTransactionManager.class));
+    }
+
+    private static User vendor() {
+        User user = new User();
+        user.setId(42L);
+        user.setName("Vendor");
+        user.setEmail("vendor@example.com");
+        user.setRole(UserRole.VENDOR);
+        user.setActive(true);
+        return user;
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty())
+            return -1;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get((int) Math.min(sorted.size() - 1, Math.floor(sorted.size() * p))));
+    }
+
+    private static JwtUtil jwtUtil() {
+        return new JwtUtil(jwtProperties());
+    }
+
+    private static JwtProperties jwtProperties() {
+        JwtProperties props = new JwtProperties();
+        props.setSecret(SECRET);
+        // Every booking pays for a full signature check
+        props.setVerifiedCacheSize(0);
+        return props;
+    }
+}
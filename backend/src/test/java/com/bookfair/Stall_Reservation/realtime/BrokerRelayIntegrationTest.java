@@ -0,0 +1,227 @@
+package com.bookfair.Stall_Reservation.realtime;
+
+import com.bookfair.Stall_Reservation.StallReservationApplication;
+import com.bookfair.Stall_Reservation.booking.EventSnapshotCache;
+import com.bookfair.Stall_Reservation.dto.event.StallBookingEvent;
+import com.bookfair.Stall_Reservation.entity.Event;
+import com.bookfair.Stall_Reservation.entity.Stall;
+import com.bookfair.Stall_Reservation.enums.StallSize;
+import com.bookfair.Stall_Reservation.repository.EventRepository;
+import com.bookfair.Stall_Reservation.repository.StallRepository;
+import com.bookfair.Stall_Reservation.service.StallHoldService;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts an embedded Artemis STOMP broker and two application nodes relaying to it, then checks
+ * that a change committed on node A reaches a client connected to node B, is streamed as a stall
+ * delta by node B when only node B serves the floor plan, invalidates node B's cached floor plan,
+ * and that a stall hold placed on one node is enforced and released on the other. Both nodes share one in-memory H2 database, so the test runs as part of {@code mvn test}.
+ */
+class BrokerRelayIntegrationTest {
+
+    private static final long EVENT_ID = 987_654_321L;
+
+    private static EmbeddedActiveMQ broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void start() throws Exception {
+        int stompPort = freePort();
+        Configuration config = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + stompPort + "?protocols=STOMP");
+        broker = new EmbeddedActiveMQ().setConfiguration(config);
+        broker.start();
+
+        nodeA = startNode(stompPort, 1);
+        nodeB = startNode(stompPort, 2);
+        waitUntil(() -> connected(nodeA) && connected(nodeB), 15);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (nodeA != null)
+            nodeA.close();
+        if (nodeB != null)
+            nodeB.close();
+        if (broker != null)
+            broker.stop();
+    }
+
+    @Test
+    void changeOnOneNodeReachesSubscribersOfTheOther() throws Exception {
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        StompSession session = connectClient(nodeB);
+        session.subscribe("/topic/admin/updates", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        });
+        // Let the SUBSCRIBE reach the broker before publishing
+        Thread.sleep(500);
+
+        nodeA.publishEvent(new StallBookingEvent(this, EVENT_ID));
+
+        Map<?, ?> message = received.poll(10, TimeUnit.SECONDS);
+        assertThat(message).isNotNull();
+        assertThat(message.get("type")).isEqualTo("BOOKING_UPDATE");
+        assertThat(((Number) message.get("eventId")).longValue()).isEqualTo(EVENT_ID);
+        session.disconnect();
+    }
+
+    @Test
+    void changeOnOneNodeIsStreamedByTheNodeServingTheFloorPlan() throws Exception {
+        long eventId = createEvent();
+        // Only node B has handed out a snapshot, so only node B streams this event
+        StallAvailabilityPublisher publisherB = nodeB.getBean(StallAvailabilityPublisher.class);
+        assertThat(publisherB.snapshot(eventId)).isNotNull();
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        StompSession session = connectClient(nodeB);
+        session.subscribe("/topic/stalls/" + eventId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        });
+        Thread.sleep(500);
+
+        nodeA.publishEvent(new StallBookingEvent(this, eventId, List.of(42L), List.of()));
+
+        Map<?, ?> delta = received.poll(10, TimeUnit.SECONDS);
+        assertThat(delta).isNotNull();
+        assertThat(delta.get("origin")).isEqualTo(nodeB.getBean(ClusterBus.class).getOrigin());
+        assertThat(((List<?>) delta.get("blocked")).stream().map(id -> ((Number) id).longValue()))
+                .containsExactly(42L);
+        session.disconnect();
+    }
+
+    @Test
+    void changeOnOneNodeInvalidatesTheOthersSnapshot() throws Exception {
+        EventSnapshotCache cacheB = nodeB.getBean(EventSnapshotCache.class);
+        long before = cacheB.currentVersion(EVENT_ID + 1);
+
+        nodeA.publishEvent(new StallBookingEvent(this, EVENT_ID + 1));
+
+        waitUntil(() -> cacheB.currentVersion(EVENT_ID + 1) > before, 10);
+    }
+
+    @Test
+    void holdOnOneNodeIsEnforcedByTheOther() throws Exception {
+        long eventId = createEvent();
+        long stallId = createStall(eventId);
+        StallHoldService holdsA = nodeA.getBean(StallHoldService.class);
+        StallHoldService holdsB = nodeB.getBean(StallHoldService.class);
+
+        holdsA.placeHold(eventId, List.of(stallId), 1L);
+        waitUntil(() -> holdsB.isHeldByOther(eventId, stallId, 2L), 10);
+        assertThat(holdsB.getHeldStallIds(eventId)).containsExactly(stallId);
+
+        // Released on the other node, as when the vendor's next request lands there
+        holdsB.releaseHold(eventId, 1L);
+        waitUntil(() -> !holdsA.isHeldByOther(eventId, stallId, 2L), 10);
+        assertThat(holdsA.getHeldStallIds(eventId)).isEmpty();
+    }
+
+    private static long createStall(long eventId) {
+        Stall stall = new Stall();
+        stall.setEvent(nodeA.getBean(EventRepository.class).findById(eventId).orElseThrow());
+        stall.setStallCode("H1");
+        stall.setSize(StallSize.SMALL);
+        stall.setPrice(BigDecimal.valueOf(1000));
+        return nodeA.getBean(StallRepository.class).save(stall).getId();
+    }
+
+    private static long createEvent() {
+        Event event = new Event();
+        event.setName("Relay test");
+        event.setLocation("Hall A");
+        event.setEventDate(LocalDateTime.now().plusDays(30));
+        return nodeA.getBean(EventRepository.class).save(event).getId();
+    }
+
+    // As arguments rather than builder properties, which would not override application.properties
+    private static ConfigurableApplicationContext startNode(int stompPort, int nodeId) {
+        return new SpringApplicationBuilder(StallReservationApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:relay;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.devtools.restart.enabled=false",
+                "--app.realtime.broker-mode=relay",
+                "--app.realtime.relay-host=127.0.0.1",
+                "--app.realtime.relay-port=" + stompPort,
+                "--app.booking.node-id=" + nodeId);
+    }
+
+    private static StompSession connectClient(ConfigurableApplicationContext node) throws Exception {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        return client.connectAsync("ws://127.0.0.1:" + port + "/ws", new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static boolean connected(ConfigurableApplicationContext node) {
+        return Boolean.TRUE.equals(node.getBean(ClusterBus.class).stats().get("clusterConnected"));
+    }
+
+    private static void waitUntil(BooleanSupplier condition, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within %ds", seconds).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
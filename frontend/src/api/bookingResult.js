@@ -0,0 +1,72 @@
+import SockJS from 'sockjs-client';
+import { Client } from '@stomp/stompjs';
+import { reservationsApi } from './client';
+
+const nativeUrl = () =>
+    `${window.location.protocol === 'https:' ? 'wss' : 'ws'}://${window.location.host}/ws/native`;
+
+const POLL_MAX_INTERVAL_MS = 3000;
+const GIVE_UP_MS = 120000;
+
+// Resolves with the outcome of an async booking ({ status: 'BOOKED' | 'FAILED', ... }).
+// The server pushes it on /user/queue/bookings; polling the ticket covers a push that arrived
+// before the subscription, or a socket that could not connect.
+export function waitForBooking(ticket) {
+    return new Promise((resolve, reject) => {
+        let client;
+        let timer;
+        let done = false;
+        const started = Date.now();
+
+        const finish = (outcome, error) => {
+            if (done) return;
+            done = true;
+            clearTimeout(timer);
+            if (client) client.deactivate();
+            if (error) reject(error);
+            else resolve(outcome);
+        };
+
+        const poll = (interval) => {
+            timer = setTimeout(() => {
+                reservationsApi.bookingRequest(ticket)
+                    .then((status) => {
+                        if (status.status !== 'QUEUED') finish(status);
+                    })
+                    .catch(() => {})
+                    .finally(() => {
+                        if (done) return;
+                        if (Date.now() - started > GIVE_UP_MS) {
+                            finish(null, new Error('Your booking is still being processed. Check My Reservations shortly.'));
+                            return;
+                        }
+                        poll(Math.min(interval * 2, POLL_MAX_INTERVAL_MS));
+                    });
+            }, interval);
+        };
+
+        try {
+            client = new Client({
+                webSocketFactory: () => (typeof WebSocket !== 'undefined'
+                    ? new WebSocket(nativeUrl())
+                    : new SockJS('/ws')),
+                connectHeaders: { Authorization: `Bearer ${localStorage.getItem('token')}` },
+                debug: () => {},
+                reconnectDelay: 5000,
+            });
+            client.onConnect = () => {
+                client.subscribe('/user/queue/bookings', (message) => {
+                    try {
+                        const outcome = JSON.parse(message.body);
+                        if (outcome.ticket === ticket && outcome.status !== 'QUEUED') finish(outcome);
+                    } catch (_) {}
+                });
+            };
+            client.onStompError = () => {};
+            client.activate();
+        } catch (_) {
+            // No WebSocket; polling alone still gets the outcome
+        }
+        poll(500);
+    });
+}
@@ -4,6 +4,37 @@ function getToken() {
   return localStorage.getItem('token');
 }
 
+function clearSession() {
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('user');
+}
+
+// Access tokens are short-lived. On a 401, trade the refresh token for a new pair once;
+// requests failing at the same time wait for the same refresh.
+let refreshing = null;
+function refreshAccessToken() {
+  if (!refreshing) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    const request = refreshToken
+      ? fetch(BASE + '/auth/refresh', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ refreshToken }),
+      }).then((res) => (res.ok ? res.json() : null)).catch(() => null)
+      : Promise.resolve(null);
+    refreshing = request
+      .then((data) => {
+        if (!data?.token) return false;
+        localStorage.setItem('token', data.token);
+        localStorage.setItem('refreshToken', data.refreshToken);
+        return true;
+      })
+      .finally(() => { refreshing = null; });
+  }
+  return refreshing;
+}
+
 function getErrorMessage(data, statusText) {
   if (!data) return statusText || 'Request failed';
   if (data.message) return data.message;
@@ -13,8 +44,10 @@ function getErrorMessage(data, statusText) {
   return statusText || 'Request failed';
 }
 
-export async function api(url, options = {}) {
-  const headers = { 'Content-Type': 'application/json', ...options.headers };
+export async function api(url, options = {}, retried = false) {
+  // Let the browser set the multipart boundary for uploads
+  const json = !(options.body instanceof FormData);
+  const headers = { ...(json ? { 'Content-Type': 'application/json' } : {}), ...options.headers };
   const token = getToken();
   if (token) headers['Authorization'] = `Bearer ${token}`;
   let res;
@@ -25,15 +58,19 @@ export async function api(url, options = {}) {
   }
   const isAuthRequest = url.startsWith('/auth/');
   if (res.status === 401 && !isAuthRequest) {
-    localStorage.removeItem('token');
-    localStorage.removeItem('user');
+    if (!retried && await refreshAccessToken()) return api(url, options, true);
+    clearSession();
     window.location.href = '/login';
     throw new Error('Unauthorized');
   }
   const text = await res.text();
   let data;
   try { data = text ? JSON.parse(text) : null; } catch { data = null; }
-  if (!res.ok) throw new Error(getErrorMessage(data, res.statusText));
+  if (!res.ok) {
+    const error = new Error(getErrorMessage(data, res.statusText));
+    error.status = res.status;
+    throw error;
+  }
   return data;
 }
 
@@ -45,10 +82,25 @@ export const publicApi = {
   genres: () => api('/public/genres'),
 };
 
+// Set by the waiting room once the vendor is admitted to book an event that is going on sale
+export const admissionKey = (eventId) => `admission:${eventId}`;
+const admissionHeader = (eventId) => {
+  const token = sessionStorage.getItem(admissionKey(eventId));
+  return token ? { 'Admission-Token': token } : {};
+};
+
 export const eventsApi = {
   list: () => api('/events'),
   get: (id) => api(`/events/${id}`),
   stallAvailability: (id) => api(`/events/${id}/stall-availability`),
+  stallSnapshot: (id) => api(`/events/${id}/stalls/snapshot`),
+  hold: (id, stallIds) => api(`/events/${id}/holds`, {
+    method: 'POST',
+    body: JSON.stringify({ stallIds }),
+    headers: admissionHeader(id),
+  }),
+  releaseHold: (id) => api(`/events/${id}/holds`, { method: 'DELETE' }),
+  joinWaitingRoom: (id) => api(`/events/${id}/waiting-room`, { method: 'POST' }),
 };
 
 export const authApi = {
@@ -63,7 +115,25 @@ export const profileApi = {
 };
 
 export const reservationsApi = {
-  book: (body) => api('/reservations/book', { method: 'POST', body: JSON.stringify(body) }),
+  book: (body, idempotencyKey) => api('/reservations/book', {
+    method: 'POST',
+    body: JSON.stringify(body),
+    headers: {
+      ...admissionHeader(body.eventId),
+      ...(idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : {}),
+    },
+  }),
+  // Answered with 202 and a ticket; see waitForBooking in bookingResult.js for the outcome
+  submit: (body, idempotencyKey) => api('/reservations/book', {
+    method: 'POST',
+    body: JSON.stringify(body),
+    headers: {
+      Prefer: 'respond-async',
+      ...admissionHeader(body.eventId),
+      ...(idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : {}),
+    },
+  }),
+  bookingRequest: (ticket) => api(`/reservations/requests/${ticket}`),
   my: () => api('/reservations/my'),
   get: (id) => api(`/reservations/${id}`),
   cancel: (id) => api(`/reservations/${id}/cancel`, { method: 'POST' }),
@@ -72,6 +142,15 @@ export const reservationsApi = {
   reject: (id) => api(`/reservations/${id}/reject`, { method: 'POST' }),
   refund: (id) => api(`/reservations/${id}/refund`, { method: 'POST' }),
   check: (eventId) => api(`/reservations/check?eventId=${eventId}`),
+  // Raw SVG markup; the browser cache revalidates it with the ETag
+  qrSvg: async (id) => {
+    const token = getToken();
+    const headers = {};
+    if (token) headers['Authorization'] = `Bearer ${token}`;
+    const res = await fetch(`${BASE}/reservations/${id}/qr?format=svg&size=200`, { headers });
+    if (!res.ok) throw new Error('Failed to load QR code');
+    return res.text();
+  },
 };
 
 
@@ -83,9 +162,14 @@ export const adminApi = {
     get: (id) => api(`/admin/events/${id}`),
     create: (body) => api('/admin/events', { method: 'POST', body: JSON.stringify(body) }),
     remove: (id) => api(`/admin/events/${id}`, { method: 'DELETE' }),
+    setOnSale: (id, onSaleAt) => api(`/admin/events/${id}/on-sale`, { method: 'PUT', body: JSON.stringify({ onSaleAt }) }),
     toggleBlockStall: (eventId, stallId, blocked) =>
       api(`/admin/events/${eventId}/stalls/${stallId}/block`, { method: 'PUT', body: JSON.stringify({ blocked }) }),
   },
+  reservations: {
+    bulk: (action, reservationIds) =>
+      api('/admin/reservations/bulk', { method: 'POST', body: JSON.stringify({ action, reservationIds }) }),
+  },
   users: {
     list: () => api('/admin/users'),
     get: (id) => api(`/admin/users/${id}`),
@@ -104,20 +188,15 @@ export const adminApi = {
     get: () => api('/admin/content'),
     update: (body) => api('/admin/content', { method: 'PUT', body: JSON.stringify(body) }),
     deleteAbout: () => api('/admin/content/about', { method: 'DELETE' }),
-    uploadVideo: async (file) => {
+    uploadVideo: (file) => {
       const formData = new FormData();
       formData.append('file', file);
-      const token = getToken();
-      const headers = {};
-      if (token) headers['Authorization'] = `Bearer ${token}`;
-      const res = await fetch(BASE + '/admin/content/upload-video', {
-        method: 'POST', headers, body: formData,
-      });
-      const text = await res.text();
-      let data;
-      try { data = text ? JSON.parse(text) : null; } catch { data = null; }
-      if (!res.ok) throw new Error(getErrorMessage(data, res.statusText));
-      return data;
+      return api('/admin/content/upload-video', { method: 'POST', body: formData });
+    },
+    uploadImage: (file) => {
+      const formData = new FormData();
+      formData.append('file', file);
+      return api('/admin/content/upload-image', { method: 'POST', body: formData });
     },
   },
   notifications: () => api('/admin/notifications'),
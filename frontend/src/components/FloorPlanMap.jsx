@@ -115,6 +115,8 @@ export default function FloorPlanMap({
     draggable = false,
     mode = 'view',
     bookedIds = new Set(),
+    presence = null, // stall id -> { viewing, selecting } by other vendors
+    onStallHover,
 }) {
     const containerRef = useRef(null);
     const [dragInfo, setDragInfo] = useState(null);
@@ -198,6 +200,11 @@ export default function FloorPlanMap({
                         Booked
                     </span>
                 )}
+                {presence && (
+                    <span style={{ display: 'flex', alignItems: 'center', gap: 5 }}>
+                        👀 Viewed / ✋ Selected by others
+                    </span>
+                )}
                 <span style={{ display: 'flex', alignItems: 'center', gap: 5 }}>
                     <span style={{ width: 14, height: 14, borderRadius: 3, background: COLORS.blocked.bg, border: `2px solid ${COLORS.blocked.border}`, display: 'inline-block' }} />
                     Blocked
@@ -257,12 +264,15 @@ export default function FloorPlanMap({
                         const color = getColor(stall, isSelected, isBooked, mode);
                         const canClick = clickable && !(mode === 'book' && (stall.blocked || isBooked));
                         const isDragging = dragInfo?.code === stall.stallCode;
+                        const others = presence?.get(stall.id);
 
                         return (
                             <div
                                 key={stall.stallCode}
                                 onPointerDown={(e) => draggable && handlePointerDown(e, stall)}
                                 onClick={() => canClick && !draggable && onStallClick?.(stall)}
+                                onPointerEnter={() => onStallHover?.(stall.id)}
+                                onPointerLeave={() => onStallHover?.(null)}
                                 style={{
                                     position: 'absolute',
                                     left: stall.positionX ?? 0,
@@ -289,6 +299,14 @@ export default function FloorPlanMap({
                                 {stall.blocked && <span style={{ fontSize: 9, pointerEvents: 'none' }}>🔒</span>}
                                 {isSelected && !stall.blocked && <span style={{ fontSize: 9, pointerEvents: 'none' }}>✓</span>}
                                 {stall.bookedBy && !stall.blocked && !isSelected && <span style={{ fontSize: 9, pointerEvents: 'none' }}>👤</span>}
+                                {others && canClick && (
+                                    <span style={{
+                                        position: 'absolute', top: -8, right: -8, background: others.selecting ? '#ff9800' : '#607d8b',
+                                        color: '#fff', fontSize: 9, fontWeight: 700, padding: '1px 5px', borderRadius: 8, pointerEvents: 'none', zIndex: 30
+                                    }}>
+                                        {others.selecting ? `✋${others.selecting}` : `👀${others.viewing}`}
+                                    </span>
+                                )}
 
                                 {(isDragging || isSelected) && (
                                     <div style={{
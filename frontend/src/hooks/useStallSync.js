@@ -1,16 +1,142 @@
-import { useEffect } from 'react';
+import { useCallback, useEffect, useRef } from 'react';
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
+import { eventsApi } from '../api/client';
+
+const nativeUrl = () =>
+    `${window.location.protocol === 'https:' ? 'wss' : 'ws'}://${window.location.host}/ws/native`;
+
+const SELECTION_MIN_INTERVAL_MS = 250;
+const SELECTION_REFRESH_MS = 15000; // well inside the server's presence TTL
+const PRESENCE_ORIGIN_TTL_MS = 60000;
+
+// Keeps booked/held/blocked stall ids in sync from the numbered delta stream.
+// A snapshot sets the baseline; a gap in the sequence triggers a fresh snapshot.
+// Each backend node numbers its own deltas, so sequences are tracked per origin.
+// A client that falls behind has its oldest frames dropped by the server and resyncs on the gap.
+//
+// With onPresence, also reports which stalls other sessions are viewing/selecting (counts include
+// this session), and returns publishSelection(selectedStallIds, viewingStallId) to announce ours.
+export function useStallSync(eventId, onUpdate, onPresence) {
+    const clientRef = useRef(null);
+    const selection = useRef(null); // last selection announced, replayed on reconnect and refresh
+    const lastSent = useRef(0);
+    const trailing = useRef(null);
+
+    const sendSelection = useCallback(() => {
+        const client = clientRef.current;
+        if (!client || !client.connected || !selection.current) return;
+        lastSent.current = Date.now();
+        client.publish({
+            destination: `/app/events/${eventId}/select`,
+            body: JSON.stringify(selection.current),
+        });
+    }, [eventId]);
+
+    const publishSelection = useCallback((selectedStallIds, viewingStallId) => {
+        selection.current = { selectedStallIds, viewingStallId: viewingStallId ?? null };
+        // Pointer moves are frequent; send at most every SELECTION_MIN_INTERVAL_MS, keeping the latest
+        if (trailing.current) return;
+        const wait = lastSent.current + SELECTION_MIN_INTERVAL_MS - Date.now();
+        if (wait <= 0) {
+            sendSelection();
+            return;
+        }
+        trailing.current = setTimeout(() => {
+            trailing.current = null;
+            sendSelection();
+        }, wait);
+    }, [sendSelection]);
 
-export function useStallSync(eventId, onUpdate) {
     useEffect(() => {
         if (!eventId) return;
 
         let client;
+        let refresh;
+        const presence = {}; // origin -> { viewers, stalls, at }
+        let cancelled = false;
+        let synced = false; // false until a snapshot has arrived
+        let seqs = {}; // origin -> last applied sequence number
+        let pending = [];
+        const booked = new Set();
+        const held = new Set();
+        const blocked = new Set();
+
+        const emit = () => onUpdate([...booked], [...held], [...blocked]);
+
+        const applyDelta = (d) => {
+            (d.booked || []).forEach((id) => booked.add(id));
+            (d.freed || []).forEach((id) => booked.delete(id));
+            (d.held || []).forEach((id) => held.add(id));
+            (d.released || []).forEach((id) => held.delete(id));
+            (d.blocked || []).forEach((id) => blocked.add(id));
+            (d.unblocked || []).forEach((id) => blocked.delete(id));
+            seqs[d.origin] = d.seq;
+        };
+
+        const resync = () => {
+            synced = false;
+            eventsApi.stallSnapshot(eventId)
+                .then((snap) => {
+                    if (cancelled) return;
+                    booked.clear(); held.clear(); blocked.clear();
+                    snap.bookedStallIds.forEach((id) => booked.add(id));
+                    snap.heldStallIds.forEach((id) => held.add(id));
+                    snap.blockedStallIds.forEach((id) => blocked.add(id));
+                    // The snapshot covers every node's committed changes; other nodes start over
+                    seqs = { [snap.origin]: snap.seq };
+                    synced = true;
+                    const buffered = pending;
+                    pending = [];
+                    buffered.forEach(handleDelta);
+                    emit();
+                })
+                .catch(() => {});
+        };
+
+        const handleDelta = (d) => {
+            if (!synced) {
+                pending.push(d);
+                return;
+            }
+            const seq = seqs[d.origin];
+            // First message from another node: deltas are facts about single stalls, so start from it
+            if (seq !== undefined && d.seq <= seq) return;
+            if (seq !== undefined && d.seq > seq + 1) {
+                pending = [d];
+                resync();
+                return;
+            }
+            applyDelta(d);
+            emit();
+        };
+
+        const handlePresence = (p) => {
+            presence[p.origin] = { viewers: p.viewers, stalls: p.stalls || {}, at: Date.now() };
+            let viewers = 0;
+            const stalls = {};
+            Object.keys(presence).forEach((origin) => {
+                const entry = presence[origin];
+                // A node that went away stops refreshing its counts
+                if (Date.now() - entry.at > PRESENCE_ORIGIN_TTL_MS) {
+                    delete presence[origin];
+                    return;
+                }
+                viewers += entry.viewers;
+                Object.entries(entry.stalls).forEach(([id, [viewing, selecting]]) => {
+                    const total = stalls[id] || { viewing: 0, selecting: 0 };
+                    stalls[id] = { viewing: total.viewing + viewing, selecting: total.selecting + selecting };
+                });
+            });
+            onPresence({ viewers, stalls });
+        };
+
         try {
-            const socket = new SockJS('/ws');
             client = new Client({
-                webSocketFactory: () => socket,
+                // A new socket per (re)connect; plain WebSocket where the browser has it
+                webSocketFactory: () => (typeof WebSocket !== 'undefined'
+                    ? new WebSocket(nativeUrl())
+                    : new SockJS('/ws')),
                 debug: () => {}, // quiet when WS fails (e.g. 403)
                 reconnectDelay: 5000,
                 heartbeatIncoming: 4000,
@@ -21,21 +147,40 @@ export function useStallSync(eventId, onUpdate) {
                 client.subscribe(`/topic/stalls/${eventId}`, (message) => {
                     if (message.body) {
                         try {
-                            const data = JSON.parse(message.body);
-                            onUpdate(data.bookedStallIds || []);
+                            handleDelta(JSON.parse(message.body));
                         } catch (_) {}
                     }
                 });
+                // Subscribed first, so nothing between the snapshot and the first delta is lost
+                resync();
+
+                if (onPresence) {
+                    client.subscribe(`/topic/presence/${eventId}`, (message) => {
+                        try {
+                            handlePresence(JSON.parse(message.body));
+                        } catch (_) {}
+                    });
+                    sendSelection();
+                }
             };
 
             client.onStompError = () => {};
             client.activate();
+            clientRef.current = client;
+            if (onPresence) refresh = setInterval(sendSelection, SELECTION_REFRESH_MS);
         } catch (_) {
             // SockJS or STOMP not available; booking still works without live sync
         }
 
         return () => {
+            cancelled = true;
+            clearInterval(refresh);
+            clearTimeout(trailing.current);
+            trailing.current = null;
+            clientRef.current = null;
             if (client) client.deactivate();
         };
-    }, [eventId, onUpdate]);
+    }, [eventId, onUpdate, onPresence, sendSelection]);
+
+    return publishSelection;
 }
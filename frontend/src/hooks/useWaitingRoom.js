@@ -0,0 +1,87 @@
+import { useEffect, useState } from 'react';
+import SockJS from 'sockjs-client';
+import { Client } from '@stomp/stompjs';
+import { eventsApi, admissionKey } from '../api/client';
+
+const nativeUrl = () =>
+    `${window.location.protocol === 'https:' ? 'wss' : 'ws'}://${window.location.host}/ws/native`;
+
+const POLL_MS = 15000;
+
+// Places the vendor in the event's on-sale queue. Resolves to { status: 'OPEN' } when there is no
+// queue; otherwise NOT_OPEN (with opensAt), WAITING (position, estimatedWaitSeconds) or ADMITTED,
+// at which point the admission token is kept for the hold and booking requests.
+// Positions and the admission are pushed on /user/queue/waiting-room; joining again (idempotent)
+// on a timer covers a missed push or a socket that could not connect.
+export function useWaitingRoom(eventId, enabled) {
+    const [room, setRoom] = useState(null);
+
+    useEffect(() => {
+        if (!eventId || !enabled) return;
+
+        let client;
+        let timer;
+        let cancelled = false;
+
+        const apply = (state) => {
+            if (cancelled || String(state.eventId) !== String(eventId)) return;
+            if (state.status === 'ADMITTED') {
+                sessionStorage.setItem(admissionKey(eventId), state.admissionToken);
+                stop();
+            }
+            setRoom(state);
+        };
+
+        const join = () => {
+            eventsApi.joinWaitingRoom(eventId)
+                .then((state) => {
+                    apply(state);
+                    if (cancelled || state.status === 'OPEN' || state.status === 'ADMITTED') return;
+                    if (state.status === 'WAITING') connect();
+                    timer = setTimeout(join, POLL_MS);
+                })
+                .catch(() => {
+                    if (!cancelled) timer = setTimeout(join, POLL_MS);
+                });
+        };
+
+        const connect = () => {
+            if (client) return;
+            try {
+                client = new Client({
+                    webSocketFactory: () => (typeof WebSocket !== 'undefined'
+                        ? new WebSocket(nativeUrl())
+                        : new SockJS('/ws')),
+                    connectHeaders: { Authorization: `Bearer ${localStorage.getItem('token')}` },
+                    debug: () => {},
+                    reconnectDelay: 5000,
+                });
+                client.onConnect = () => {
+                    client.subscribe('/user/queue/waiting-room', (message) => {
+                        try {
+                            apply(JSON.parse(message.body));
+                        } catch (_) {}
+                    });
+                };
+                client.onStompError = () => {};
+                client.activate();
+            } catch (_) {
+                // No WebSocket; rejoining on the timer still moves us along
+            }
+        };
+
+        const stop = () => {
+            clearTimeout(timer);
+            if (client) client.deactivate();
+        };
+
+        join();
+
+        return () => {
+            cancelled = true;
+            stop();
+        };
+    }, [eventId, enabled]);
+
+    return room;
+}
@@ -3,6 +3,7 @@ import { useParams, useNavigate } from 'react-router-dom';
 import { useAuth } from '../context/AuthContext';
 import { eventsApi, publicApi, reservationsApi, mlApi } from '../api/client';
 import { useStallSync } from '../hooks/useStallSync';
+import { useWaitingRoom } from '../hooks/useWaitingRoom';
 import FloorPlanMap, { toLogicalCoordinates } from '../components/FloorPlanMap';
 
 const MAX_STALLS = 3;
@@ -18,6 +19,9 @@ export default function Booking() {
   const [selectedGenreIds, setSelectedGenreIds] = useState([]);
   const [stallDescription, setStallDescription] = useState('');
   const [bookedStallIds, setBookedStallIds] = useState([]);
+  const [heldStallIds, setHeldStallIds] = useState([]);
+  const [presence, setPresence] = useState({ viewers: 0, stalls: {} });
+  const [hoveredStallId, setHoveredStallId] = useState(null);
   const [loading, setLoading] = useState(true);
   const [submitting, setSubmitting] = useState(false);
   const [error, setError] = useState('');
@@ -28,11 +32,35 @@ export default function Booking() {
     return event?.stalls ? event.stalls.filter(s => selectedStallIds.includes(s.id)) : [];
   }, [event, selectedStallIds]);
 
-  const onStallUpdate = useCallback((ids) => {
+  const onStallUpdate = useCallback((ids, heldIds, blockedIds) => {
     setBookedStallIds(ids);
+    setHeldStallIds(heldIds);
+    const blockedSet = new Set(blockedIds);
+    setEvent((ev) => ev && ({ ...ev, stalls: ev.stalls.map((s) => ({ ...s, blocked: blockedSet.has(s.id) })) }));
   }, []);
 
-  useStallSync(id, onStallUpdate);
+  const publishSelection = useStallSync(id, onStallUpdate, setPresence);
+
+  // Events going on sale are booked through the waiting room
+  const waitingRoom = useWaitingRoom(id, isVendor && !!event?.onSaleAt);
+
+  // Let other vendors see what we are looking at; sent throttled over the same connection
+  useEffect(() => {
+    publishSelection(selectedStallIds, hoveredStallId);
+  }, [publishSelection, selectedStallIds, hoveredStallId]);
+
+  // Presence counts include this session; take our own selection and pointer back out
+  const othersOnStall = useMemo(() => {
+    const result = new Map();
+    Object.entries(presence.stalls).forEach(([key, counts]) => {
+      const stallId = Number(key);
+      const viewing = counts.viewing - (stallId === hoveredStallId ? 1 : 0);
+      const selecting = counts.selecting - (selectedStallIds.includes(stallId) ? 1 : 0);
+      if (viewing > 0 || selecting > 0) result.set(stallId, { viewing: Math.max(viewing, 0), selecting: Math.max(selecting, 0) });
+    });
+    return result;
+  }, [presence, hoveredStallId, selectedStallIds]);
+  const otherViewers = Math.max(presence.viewers - 1, 0);
 
   // AI Recommendations: call ML service when selected stalls change
   useEffect(() => {
@@ -65,15 +93,20 @@ export default function Booking() {
         setEvent(ev);
         setGenres(g);
         setBookedStallIds(ev.bookedStallIds || []);
+        setHeldStallIds(ev.heldStallIds || []);
       })
       .catch(() => setEvent(null))
       .finally(() => setLoading(false));
   }, [id, isVendor, isAdmin, navigate]);
 
   
+  // Stalls held by other vendors; our own hold only covers what we have selected
+  const isHeldByOther = (stallId) => heldStallIds.includes(stallId) && !selectedStallIds.includes(stallId);
+
   const handleStallClick = (stall) => {
     if (stall.blocked) return;
     if (bookedStallIds.includes(stall.id)) return;
+    if (isHeldByOther(stall.id)) return;
 
     if (selectedStallIds.includes(stall.id)) {
       setSelectedStallIds(prev => prev.filter(x => x !== stall.id));
@@ -101,7 +134,7 @@ export default function Booking() {
   }, 0);
   const advance = (total * ADVANCE_PERCENT) / 100;
 
-  const handleSubmit = (e) => {
+  const handleSubmit = async (e) => {
     e.preventDefault();
     setError('');
 
@@ -110,6 +143,17 @@ export default function Booking() {
       return;
     }
 
+    // Hold the stalls while the vendor completes payment
+    setSubmitting(true);
+    try {
+      await eventsApi.hold(id, selectedStallIds);
+    } catch (err) {
+      setError(err.message);
+      setSubmitting(false);
+      return;
+    }
+    setSubmitting(false);
+
     const selectedStallNames = stalls
       .filter(s => selectedStallIds.includes(s.id))
       .map(s => `${s.stallCode} (${s.size})`);
@@ -136,8 +180,33 @@ export default function Booking() {
     );
   }
 
+  if (waitingRoom && (waitingRoom.status === 'NOT_OPEN' || waitingRoom.status === 'WAITING')) {
+    return (
+      <div className="min-h-screen flex items-center justify-center bg-gray-900 text-gray-100 px-4">
+        <div className="bg-black rounded-xl shadow-lg border border-gray-700 p-8 max-w-md text-center space-y-3">
+          <h1 className="text-2xl font-bold text-white">{event.name}</h1>
+          {waitingRoom.status === 'NOT_OPEN' ? (
+            <p className="text-gray-300">
+              Booking opens at {new Date(waitingRoom.onSaleAt).toLocaleString()}. The waiting room opens
+              at {new Date(waitingRoom.opensAt).toLocaleString()}; keep this page open to join it.
+            </p>
+          ) : (
+            <>
+              <p className="text-gray-300">You are in the waiting room. Keep this page open.</p>
+              <p className="text-4xl font-bold text-blue-300">#{waitingRoom.position}</p>
+              <p className="text-gray-400 text-sm">
+                About {Math.max(1, Math.ceil(waitingRoom.estimatedWaitSeconds / 60))} min to go
+                {new Date(waitingRoom.onSaleAt) > new Date() && ' after booking opens'}.
+              </p>
+            </>
+          )}
+        </div>
+      </div>
+    );
+  }
+
   const selectedIdSet = new Set(selectedStallIds);
-  const bookedIdSet = new Set(bookedStallIds);
+  const bookedIdSet = new Set([...bookedStallIds, ...heldStallIds.filter(isHeldByOther)]);
 
   return (
     <div className="min-h-screen bg-gray-900 py-12 px-4 text-gray-100">
@@ -152,6 +221,7 @@ export default function Booking() {
             </h2>
             <p className="text-gray-400 text-sm mb-4">
               Click available stalls on the map to select them for booking.
+              {otherViewers > 0 && ` ${otherViewers} other vendor${otherViewers > 1 ? 's are' : ' is'} looking at this floor plan.`}
             </p>
 
             <FloorPlanMap
@@ -160,6 +230,8 @@ export default function Booking() {
               onStallClick={handleStallClick}
               mode="book"
               bookedIds={bookedIdSet}
+              presence={othersOnStall}
+              onStallHover={setHoveredStallId}
             />
 
             {selectedStallIds.length > 0 && (
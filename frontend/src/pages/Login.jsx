@@ -19,7 +19,7 @@ export default function Login() {
     authApi
       .login(email, password, role)
       .then((res) => {
-        login({ userId: res.userId, email: res.email, name: res.name, role: res.role }, res.token);
+        login({ userId: res.userId, email: res.email, name: res.name, role: res.role }, res.token, res.refreshToken);
         if (res.role === 'ADMIN') navigate('/admin');
         else navigate('/');
       })
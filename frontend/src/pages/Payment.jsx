@@ -1,6 +1,7 @@
-import { useEffect, useState } from 'react';
+import { useEffect, useRef, useState } from 'react';
 import { useParams, useNavigate, useLocation } from 'react-router-dom';
 import { reservationsApi } from '../api/client';
+import { waitForBooking } from '../api/bookingResult';
 import { useAuth } from '../context/AuthContext';
 
 export default function Payment() {
@@ -19,6 +20,8 @@ export default function Payment() {
   });
 
   const [isSubmitting, setIsSubmitting] = useState(false);
+  // Resubmits after a timeout replay the original booking; after a failure a new key starts afresh
+  const idempotencyKey = useRef(crypto.randomUUID());
   const [error, setError] = useState('');
 
   useEffect(() => {
@@ -46,14 +49,20 @@ export default function Payment() {
         ...formData
       };
 
-      await reservationsApi.book(payload);
+      // Queued on the server; the outcome arrives over the socket (or by polling the ticket)
+      const accepted = await reservationsApi.submit(payload, idempotencyKey.current);
+      const outcome = accepted.ticket ? await waitForBooking(accepted.ticket) : accepted;
+      if (outcome.status === 'FAILED') throw Object.assign(new Error(outcome.message), { status: 409 });
 
       navigate('/reservations', {
         state: { message: 'Booking submitted successfully! Waiting for Admin approval.' }
       });
     } catch (err) {
       console.error(err);
-      setError(err.response?.data?.message || 'Failed to submit booking');
+      setError(err.message || 'Failed to submit booking');
+      // The server answered, so nothing is left to replay; an unreachable server or a booking still
+      // being processed keeps the key so the next attempt picks up its outcome
+      if (err.status) idempotencyKey.current = crypto.randomUUID();
     } finally {
       setIsSubmitting(false);
     }
@@ -6,6 +6,7 @@ export default function ReservationDetail() {
   const { id } = useParams();
   const [r, setR] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [qrSvg, setQrSvg] = useState(null);
 
   useEffect(() => {
     reservationsApi
@@ -13,6 +14,10 @@ export default function ReservationDetail() {
       .then(setR)
       .catch(() => setR(null))
       .finally(() => setLoading(false));
+    reservationsApi
+      .qrSvg(id)
+      .then(setQrSvg)
+      .catch(() => setQrSvg(null));
   }, [id]);
 
   // 🔄 Loading Screen
@@ -88,6 +93,13 @@ export default function ReservationDetail() {
 
         {r.qrCodeValue && (
           <div className="pt-4 border-t border-slate-700 text-sm text-stone-400">
+            {qrSvg && (
+              <img
+                src={`data:image/svg+xml;charset=utf-8,${encodeURIComponent(qrSvg)}`}
+                alt="Booking QR code"
+                className="w-48 h-48 mb-3 rounded bg-white"
+              />
+            )}
             QR Value: {r.qrCodeValue}
           </div>
         )}
@@ -87,16 +87,7 @@ export default function AdminEventNew() {
         if (!imageFile) return;
         setUploading(true);
         try {
-            const formData = new FormData();
-            formData.append('file', imageFile);
-            const token = localStorage.getItem('token');
-            const headers = {};
-            if (token) headers['Authorization'] = `Bearer ${token}`;
-            const res = await fetch('/api/admin/content/upload-image', {
-                method: 'POST', headers, body: formData,
-            });
-            const data = await res.json();
-            if (!res.ok) throw new Error(data.message || 'Upload failed');
+            const data = await adminApi.content.uploadImage(imageFile);
             setForm(f => ({ ...f, imageUrl: data.url }));
             setMsg('Image uploaded successfully!');
         } catch (err) {